@@ -0,0 +1,89 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 合成音频落盘：旧的先写 PCM 再 {@link AudioUtil#convertWaveFile} 转换，对比 {@link WavFileSink} 直接写 WAV。
+ * 每次调用写入 10 秒 16k 音频，按 frameBytes 分帧到达。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AudioFileBenchmark {
+    private static final int AUDIO_BYTES = 16000 * 2 * 10;
+
+    @Param({"1280", "6400", "36862"})
+    public int frameBytes;
+
+    private byte[] frame;
+    private File dir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        frame = new byte[frameBytes];
+        new Random(frameBytes).nextBytes(frame);
+        dir = Files.createTempDirectory("xap-bench").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public String pcmThenConvert() throws IOException {
+        File pcm = new File(dir, "legacy.pcm");
+        try (FileOutputStream out = new FileOutputStream(pcm)) {
+            for (int written = 0; written < AUDIO_BYTES; written += frameBytes) {
+                out.write(frame);
+            }
+        }
+        String path = AudioUtil.convertWaveFile(pcm.getPath());
+        pcm.delete();
+        return path;
+    }
+
+    @Benchmark
+    public String wavFileSink() throws IOException {
+        WavFileSink sink = new WavFileSink(new File(dir, "sink.wav"), 16000);
+        for (int written = 0; written < AUDIO_BYTES; written += frameBytes) {
+            sink.write(frame, 0, frame.length);
+        }
+        return sink.finish();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public byte[] getHeader() {
+        return AudioUtil.getHeader();
+    }
+}
@@ -0,0 +1,57 @@
+package com.xap.voicetranslate.utils;
+
+import com.alibaba.fastjson.JSON;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okio.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 上传帧编码：旧的 jsonPrepare（Base64 字符串 + fastjson）对比 {@link AudioFrameEncoder}。
+ * 两者都以 WebSocket 实际发送的 {@link ByteString} 为终点。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AudioFrameEncoderBenchmark {
+
+    @Param({"1280", "6400", "36862"})
+    public int frameBytes;
+
+    private byte[] pcm;
+
+    @Setup
+    public void setup() {
+        pcm = new byte[frameBytes];
+        new Random(frameBytes).nextBytes(pcm);
+        String expected = LegacyCodec.jsonPrepare(pcm);
+        String actual = AudioFrameEncoder.encodeFrame(pcm, 0, pcm.length).utf8();
+        if (!JSON.parseObject(expected).equals(JSON.parseObject(actual))) {
+            throw new IllegalStateException("encoder output differs from jsonPrepare");
+        }
+    }
+
+    @Benchmark
+    public ByteString legacyJsonPrepare() {
+        return ByteString.encodeUtf8(LegacyCodec.jsonPrepare(pcm));//send(String) 内部同样会转成 ByteString
+    }
+
+    @Benchmark
+    public ByteString frameEncoder() {
+        return AudioFrameEncoder.encodeFrame(pcm, 0, pcm.length);
+    }
+}
@@ -0,0 +1,37 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 建立连接时的签名计算。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptUtilBenchmark {
+    private final String raw = "xapaccount-1385487646" + "fQUr0z4jOM" + "1588347032185"
+            + "b1603e2fad947fc1a560e1f4bb7ffd589f2fbd785ca5176758ec0c9834ac4e3f";
+
+    @Benchmark
+    public String sha256() throws Exception {
+        return EncryptUtil.SHA256(raw);
+    }
+
+    @Benchmark
+    public String randomSalt() {
+        return EncryptUtil.getRandomString(10);
+    }
+}
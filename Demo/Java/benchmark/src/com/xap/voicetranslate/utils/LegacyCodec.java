@@ -0,0 +1,53 @@
+package com.xap.voicetranslate.utils;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import java.nio.charset.Charset;
+import java.util.Base64;
+
+import okio.ByteString;
+
+/**
+ * 旧版 ComplexSpeech 的编解码实现，作为基准测试的对照组。
+ */
+final class LegacyCodec {
+
+    private LegacyCodec() {
+    }
+
+    static String jsonPrepare(byte[] data) {//封装音频发送的json数据
+        String encodedData = Base64.getEncoder()
+                .encodeToString(data);
+        JSONObject object = new JSONObject();
+        JSONObject object1 = new JSONObject();
+        object.put("audio", encodedData);
+        object1.put("data", object);
+        object1.put("type", "audio");
+        return object1.toString();
+    }
+
+    /**
+     * 旧版 onMessage 的解析部分：整帧转字符串、构建 JSONObject、解码音频。
+     *
+     * @return 音频消息返回解码后的 PCM，文字消息返回 sentence
+     */
+    static Object onMessage(ByteString bytes) {
+        String text = bytes.string(Charset.defaultCharset());
+        JSONObject j = JSON.parseObject(text);
+        final String type = j.getString("type");
+        JSONObject data;
+        switch (type){
+            case "audio":    //收到音频数据
+                data = j.getJSONObject("data");
+                String audio = data.getString("audio");
+                return Base64.getDecoder().decode(audio);//解码音频数据
+            case "origin":  //收到识别结果
+            case "translation": //收到翻译结果
+                data = j.getJSONObject("data");
+                data.getBoolean("is-final");
+                return data.getString("sentence");
+            default:
+                return type;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.xap.voicetranslate.utils;
+
+import com.alibaba.fastjson.JSONObject;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okio.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 服务端消息解析：旧的 fastjson 路径对比 {@link ServerMessageDecoder}。
+ * audio 为合成音频帧，translation 为一条翻译文字结果。帧大小从 1280 字节到单帧上限 0x8FFE。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerMessageDecoderBenchmark {
+
+    @Param({"1280", "6400", "36862"})
+    public int frameBytes;
+
+    private ByteString audioMessage;
+    private ByteString translationMessage;
+    private final ServerMessageDecoder decoder = new ServerMessageDecoder();
+    private final byte[] audioOut = new byte[64 * 1024];
+    private final AudioBufferPool audioPool = new AudioBufferPool(64 * 1024, 16);
+
+    private static final String SENTENCE = "今天天气很好，我们一起去公园散步吧。";
+
+    @Setup
+    public void setup() {
+        byte[] pcm = new byte[frameBytes];
+        new Random(frameBytes).nextBytes(pcm);
+        JSONObject audio = new JSONObject();
+        audio.put("audio", Base64.getEncoder().encodeToString(pcm));
+        JSONObject message = new JSONObject();
+        message.put("type", "audio");
+        message.put("data", audio);
+        audioMessage = ByteString.encodeUtf8(message.toString());
+
+        JSONObject sentence = new JSONObject();
+        sentence.put("sentence", SENTENCE);
+        sentence.put("is-final", true);
+        message = new JSONObject();
+        message.put("type", "translation");
+        message.put("data", sentence);
+        translationMessage = ByteString.encodeUtf8(message.toString());
+
+        decoder.decode(audioMessage.asByteBuffer());
+        if (!Arrays.equals(pcm, Arrays.copyOf(audioOut, decoder.decodeAudio(audioOut, 0)))) {
+            throw new IllegalStateException("decoder audio differs");
+        }
+        decoder.decode(translationMessage.asByteBuffer());
+        if (!SENTENCE.equals(decoder.sentence()) || !decoder.isFinal()) {//旧路径按平台默认编码解码，非 UTF-8 环境下会乱码
+            throw new IllegalStateException("decoder sentence differs");
+        }
+    }
+
+    @Benchmark
+    public Object legacyAudio() {
+        return LegacyCodec.onMessage(audioMessage);
+    }
+
+    @Benchmark
+    public int decoderAudio() {
+        decoder.decode(audioMessage.asByteBuffer());
+        return decoder.decodeAudio(audioOut, 0);
+    }
+
+    /**
+     * 会话中的实际路径：从缓冲池取缓冲区解码，回调后归还。
+     */
+    @Benchmark
+    public int decoderAudioPooled() {
+        decoder.decode(audioMessage.asByteBuffer());
+        byte[] buffer = audioPool.acquire(decoder.maxAudioLength());
+        int length = decoder.decodeAudio(buffer, 0);
+        audioPool.chunk(buffer, length).release();
+        return length;
+    }
+
+    @Benchmark
+    public Object legacyTranslation() {
+        return LegacyCodec.onMessage(translationMessage);
+    }
+
+    @Benchmark
+    public String decoderTranslation() {
+        decoder.decode(translationMessage.asByteBuffer());
+        return decoder.sentence();
+    }
+}
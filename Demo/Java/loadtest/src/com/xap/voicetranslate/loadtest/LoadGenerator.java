@@ -0,0 +1,251 @@
+package com.xap.voicetranslate.loadtest;
+
+import com.xap.voicetranslate.Constant;
+import com.xap.voicetranslate.callback.MetricsListener;
+import com.xap.voicetranslate.callback.STSCallback;
+import com.xap.voicetranslate.utils.ClientMetrics;
+import com.xap.voicetranslate.utils.ComplexSpeech;
+import com.xap.voicetranslate.utils.Credential;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 压测入口：以指定并发向模拟服务（或 --url 指定的服务）发起会话，统计吞吐、首个识别结果延迟、堆内存和线程数峰值。
+ * <pre>
+ * java -jar target/loadtest.jar --sessions=500 --concurrency=100 --seconds=5 --rtf=0
+ * </pre>
+ * 参数：
+ * --sessions 会话总数，默认 200；--concurrency 同时进行的会话数，默认 50；
+ * --seconds 每个会话的音频时长，默认 5；--rtf 上传速度相对实时的倍数，0 表示不限速，默认 0；
+ * --delay 模拟服务返回结果的延迟毫秒数，默认 50；--error 模拟服务返回的错误码，默认不返回；
+ * --url、--appId、--appSecret 改为连接真实服务；--from、--to 语言，默认 en-US、zh；
+ * --metrics 开启 SDK 指标采集并输出汇总；--warm 每个语言对预建的连接数，默认 0；
+ * --accounts 模拟服务的账号数，会话分摊到各账号，默认不启用；--accountConnections、--accountRate
+ * 每个账号的并发连接数和每秒建连数上限，默认不限制。
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int sessions = Integer.parseInt(options.getOrDefault("sessions", "200"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "50"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "5"));
+        double rtf = Double.parseDouble(options.getOrDefault("rtf", "0"));
+        String from = options.getOrDefault("from", Constant.FROM);
+        String to = options.getOrDefault("to", Constant.TO);
+
+        MockXapServer server = null;
+        String url = options.get("url");
+        if (url == null) {
+            server = new MockXapServer()
+                    .resultDelay(Long.parseLong(options.getOrDefault("delay", "50")))
+                    .errorCode(Integer.parseInt(options.getOrDefault("error", "0")));
+            server.start();
+            url = server.url();
+        }
+        ComplexSpeech.Builder builder = new ComplexSpeech.Builder()
+                .url(url)
+                .credentials(options.getOrDefault("appId", Constant.APP_ID),
+                        options.getOrDefault("appSecret", Constant.APP_SECRET))
+                .realTimeFactor(rtf);
+        int accounts = Integer.parseInt(options.getOrDefault("accounts", "0"));
+        if (accounts > 0 && server != null) {
+            int maxConnections = Integer.parseInt(options.getOrDefault("accountConnections", "0"));
+            double rate = Double.parseDouble(options.getOrDefault("accountRate", "0"));
+            for (int i = 0; i < accounts; i++) {
+                server.addAccount("loadtest-" + i, "secret-" + i);
+                builder.addCredential(new Credential("loadtest-" + i, "secret-" + i, maxConnections, rate,
+                        (int) Math.max(1, Math.ceil(rate))));
+            }
+        }
+        if (options.containsKey("metrics")) {
+            builder.metrics(new MetricsListener() {});
+        }
+        int warm = Integer.parseInt(options.getOrDefault("warm", "0"));
+        if (warm > 0) {
+            builder.warmConnections(warm).maxWarmConnections(Math.max(warm, 64));
+        }
+        ComplexSpeech speech = builder.build();
+        if (warm > 0) {
+            speech.warmUp(from, to);
+            TimeUnit.MILLISECONDS.sleep(500);//等待预建连接完成握手
+        }
+
+        byte[] pcm = synthesize(seconds);
+        Semaphore permits = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(sessions);
+        long[] firstResult = new long[sessions];
+        Arrays.fill(firstResult, -1);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Map<Integer, AtomicInteger> errorCodes = new HashMap<>();
+
+        Sampler sampler = new Sampler();
+        sampler.start();
+        long begin = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            permits.acquire();
+            int index = i;
+            long start = System.nanoTime();
+            AtomicBoolean finished = new AtomicBoolean();
+            Runnable finish = () -> {
+                if (finished.compareAndSet(false, true)) {
+                    permits.release();
+                    done.countDown();
+                }
+            };
+            speech.startSTS(from, to, new ByteArrayInputStream(pcm), null, new STSCallback() {
+                @Override
+                public void onOpen() {
+                }
+
+                @Override
+                public void onRecognizeSuccess(boolean isFinal, String sentence) {
+                    if (firstResult[index] < 0) {//只在该会话的读线程上写入
+                        firstResult[index] = System.nanoTime() - start;
+                    }
+                }
+
+                @Override
+                public void onTranslateSuccess(boolean isFinal, String sentence) {
+                }
+
+                @Override
+                public void onFinish(String voicePath) {
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.incrementAndGet();
+                    finish.run();
+                }
+
+                @Override
+                public void onError(int errorCode, String error) {
+                    if (!finished.get()) {
+                        failed.incrementAndGet();
+                        synchronized (errorCodes) {
+                            errorCodes.computeIfAbsent(errorCode, k -> new AtomicInteger()).incrementAndGet();
+                        }
+                    }
+                    finish.run();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        sampler.interrupt();
+        sampler.join();
+
+        long[] latencies = Arrays.stream(firstResult).filter(l -> l >= 0).sorted().toArray();
+        double wall = elapsed / 1e9;
+        System.out.printf("sessions            %d (completed %d, failed %d)%n", sessions, completed.get(), failed.get());
+        if (!errorCodes.isEmpty()) {
+            System.out.printf("error codes         %s%n", errorCodes);
+        }
+        System.out.printf("concurrency         %d%n", concurrency);
+        System.out.printf("audio per session   %d s, rtf %s%n", seconds, rtf <= 0 ? "unpaced" : String.valueOf(rtf));
+        System.out.printf("wall time           %.2f s%n", wall);
+        System.out.printf("throughput          %.1f sessions/s%n", sessions / wall);
+        System.out.printf("first result p50    %.1f ms%n", percentile(latencies, 0.50));
+        System.out.printf("first result p99    %.1f ms%n", percentile(latencies, 0.99));
+        System.out.printf("peak heap           %.1f MB%n", sampler.peakHeap / (1024.0 * 1024.0));
+        System.out.printf("peak threads        %d%n", sampler.peakThreads);
+        ClientMetrics metrics = speech.getMetrics();
+        if (metrics != null) {
+            System.out.printf("sdk connect avg     %.1f ms%n", metrics.getAverageConnectMillis());
+            System.out.printf("sdk first origin    %.1f ms%n", metrics.getAverageFirstOriginMillis());
+            System.out.printf("sdk first audio     %.1f ms%n", metrics.getAverageFirstAudioMillis());
+            System.out.printf("sdk first flush     %.1f ms%n", metrics.getAverageFirstFlushMillis());
+            System.out.printf("sdk bytes           %d sent, %d received, %d frames, %d send failures%n",
+                    metrics.getBytesSent(), metrics.getBytesReceived(), metrics.getFramesQueued(),
+                    metrics.getSendFailures());
+        }
+        if (server != null) {
+            System.out.printf("server connections  %d accepted, %d rejected%n",
+                    server.acceptedConnections(), server.rejectedConnections());
+            for (int i = 0; i < accounts; i++) {
+                System.out.printf("account %-11d peak %d connections%n", i, server.peakConnections("loadtest-" + i));
+            }
+        }
+
+        speech.close();
+        if (server != null) {
+            server.close();
+        }
+        System.exit(failed.get() == 0 ? 0 : 1);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    private static byte[] synthesize(int seconds) {//16k 单声道 16 位正弦波
+        byte[] pcm = new byte[Constant.AUDIO_RATE * 2 * seconds];
+        for (int i = 0; i < pcm.length / 2; i++) {
+            short sample = (short) (Math.sin(2 * Math.PI * 300 * i / Constant.AUDIO_RATE) * 6000);
+            pcm[2 * i] = (byte) sample;
+            pcm[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * 每 50 毫秒采样一次堆内存和线程数。
+     */
+    private static class Sampler extends Thread {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        volatile long peakHeap;
+        volatile int peakThreads;
+
+        Sampler() {
+            super("load-sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+                peakThreads = Math.max(peakThreads, threads.getThreadCount());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(50);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            peakThreads = Math.max(peakThreads, threads.getPeakThreadCount());
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.xap.voicetranslate.loadtest;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.xap.voicetranslate.Constant;
+import com.xap.voicetranslate.utils.EncryptUtil;
+import com.xap.voicetranslate.utils.TextUtils;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.HttpUrl;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+
+/**
+ * 本地模拟的 XAP 服务，按接口文档校验签名并返回识别、翻译和合成音频结果，用于离线压测。
+ * 每收到 sentenceBytes 字节音频视为一句：先返回一次中间结果，句末返回最终结果、若干帧合成音频和 audio/flush；
+ * 收到 audio/end 后返回 origin/end、translation/end、audio/end。
+ */
+public class MockXapServer implements Closeable {
+    public static final String PATH = "/v1/xap/";
+    private static final long MAX_CLOCK_SKEW = TimeUnit.MINUTES.toMillis(3);
+
+    static {//MockWebServer 每个连接都会打印 INFO 日志
+        Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "mock-xap");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private long resultDelayMillis = 50;
+    private long sentenceBytes = 16000 * 2 * 3;
+    private int audioFramesPerSentence = 4;
+    private int audioFrameBytes = 6400;
+    private int errorCode;
+    private int dropConnections;
+    private long dropAfterBytes;
+
+    private ByteString audioMessage;
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    {
+        accounts.put(Constant.APP_ID, new Account(Constant.APP_SECRET));
+    }
+
+    /**
+     * 只接受该账号，替换默认的 Constant.APP_ID。
+     */
+    public MockXapServer credentials(String appId, String appSecret) {
+        accounts.clear();
+        return addAccount(appId, appSecret);
+    }
+
+    /**
+     * 再接受一个账号。
+     */
+    public MockXapServer addAccount(String appId, String appSecret) {
+        accounts.put(appId, new Account(appSecret));
+        return this;
+    }
+
+    /**
+     * 每条结果相对触发它的音频的延迟，默认 50 毫秒。
+     */
+    public MockXapServer resultDelay(long millis) {
+        this.resultDelayMillis = millis;
+        return this;
+    }
+
+    /**
+     * 每句对应的上传音频字节数，默认 3 秒 16k 音频。
+     */
+    public MockXapServer sentenceBytes(long bytes) {
+        this.sentenceBytes = bytes;
+        return this;
+    }
+
+    /**
+     * 每句返回的合成音频帧数和每帧字节数。
+     */
+    public MockXapServer synthesizedAudio(int framesPerSentence, int frameBytes) {
+        this.audioFramesPerSentence = framesPerSentence;
+        this.audioFrameBytes = frameBytes;
+        return this;
+    }
+
+    /**
+     * 收到第一帧音频后以该关闭码断开连接，用于模拟服务端错误（如 4012），0 表示不模拟。
+     */
+    public MockXapServer errorCode(int code) {
+        this.errorCode = code;
+        return this;
+    }
+
+    /**
+     * 前 count 个连接在收到 afterBytes 字节音频后直接关闭、不再返回结果，用于模拟连接中断。
+     */
+    public MockXapServer dropConnections(int count, long afterBytes) {
+        this.dropConnections = count;
+        this.dropAfterBytes = afterBytes;
+        return this;
+    }
+
+    public void start() throws IOException {
+        byte[] pcm = new byte[audioFrameBytes];
+        for (int i = 0; i + 1 < pcm.length; i += 2) {//440Hz 正弦波
+            short sample = (short) (Math.sin(2 * Math.PI * 440 * (i / 2) / 16000.0) * 8000);
+            pcm[i] = (byte) sample;
+            pcm[i + 1] = (byte) (sample >> 8);
+        }
+        JSONObject data = new JSONObject();
+        data.put("audio", Base64.getEncoder().encodeToString(pcm));
+        audioMessage = message("audio", data);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                HttpUrl url = request.getRequestUrl();
+                if (url == null || !PATH.equals(url.encodedPath())) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                int code = verify(url);
+                int connection = 0;
+                Account account = null;
+                if (code == 0) {
+                    connection = accepted.incrementAndGet();
+                    account = accounts.get(url.queryParameter("appID"));
+                    account.opened();
+                } else {
+                    rejected.incrementAndGet();
+                }
+                return new MockResponse().withWebSocketUpgrade(new MockSession(code, connection, account));
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * 供 {@code ComplexSpeech.Builder#url} 使用的地址模板。
+     */
+    public String url() {
+        return "ws://" + server.getHostName() + ":" + server.getPort() + PATH
+                + "?appID=%1s&salt=%2s&timestamp=%3s&sign=%4s&from=%5s&to=%6s&rate=%7s";
+    }
+
+    public int acceptedConnections() {
+        return accepted.get();
+    }
+
+    public int rejectedConnections() {
+        return rejected.get();
+    }
+
+    /**
+     * 该账号同时保持的连接数峰值。
+     */
+    public int peakConnections(String appId) {
+        Account account = accounts.get(appId);
+        return account == null ? 0 : account.peak;
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        server.shutdown();
+    }
+
+    /**
+     * 按接口文档校验请求参数。
+     *
+     * @return 0 表示通过，否则为附录二中的错误码
+     */
+    private int verify(HttpUrl url) {
+        String id = url.queryParameter("appID");
+        String salt = url.queryParameter("salt");
+        String timestamp = url.queryParameter("timestamp");
+        String sign = url.queryParameter("sign");
+        if (TextUtils.isEmpty(id) || TextUtils.isEmpty(salt) || TextUtils.isEmpty(timestamp) || TextUtils.isEmpty(sign)
+                || salt.length() < 4 || salt.length() > 64) {
+            return 4001;
+        }
+        try {
+            if (Math.abs(System.currentTimeMillis() - Long.parseLong(timestamp)) > MAX_CLOCK_SKEW) {
+                return 4002;
+            }
+        } catch (NumberFormatException e) {
+            return 4002;
+        }
+        try {
+            Account account = accounts.get(id);
+            if (account == null || !sign.equals(EncryptUtil.SHA256(id + salt + timestamp + account.secret))) {
+                return 4003;
+            }
+        } catch (Exception e) {
+            return 4003;
+        }
+        if (TextUtils.isEmpty(url.queryParameter("from")) || TextUtils.isEmpty(url.queryParameter("to"))) {
+            return 4004;
+        }
+        try {
+            int rate = Integer.parseInt(url.queryParameter("rate"));
+            if (rate < 8000 || rate > 55000) {
+                return 4005;
+            }
+        } catch (NumberFormatException e) {
+            return 4005;
+        }
+        return 0;
+    }
+
+    private static ByteString message(String type, JSONObject data) {
+        JSONObject object = new JSONObject();
+        object.put("type", type);
+        if (data != null) {
+            object.put("data", data);
+        }
+        return ByteString.encodeUtf8(object.toString());
+    }
+
+    private static ByteString sentence(String type, String sentence, boolean isFinal) {
+        JSONObject data = new JSONObject();
+        data.put("sentence", sentence);
+        data.put("is-final", isFinal);
+        return message(type, data);
+    }
+
+    private static final class Account {
+        final String secret;
+        private int active, peak;
+
+        Account(String secret) {
+            this.secret = secret;
+        }
+
+        synchronized void opened() {
+            peak = Math.max(peak, ++active);
+        }
+
+        synchronized void closed() {
+            active--;
+        }
+    }
+
+    private class MockSession extends WebSocketListener {
+        private final int rejectCode;
+        private final int connection;
+        private final Account account;
+        private final AtomicBoolean ended = new AtomicBoolean();
+        private long received, sentenceReceived;
+        private int sentence;
+        private boolean partialSent;
+
+        MockSession(int rejectCode, int connection, Account account) {
+            this.rejectCode = rejectCode;
+            this.connection = connection;
+            this.account = account;
+        }
+
+        private void end() {
+            if (account != null && ended.compareAndSet(false, true)) {
+                account.closed();
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            if (rejectCode != 0) {
+                webSocket.close(rejectCode, "rejected by mock server");
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, ByteString bytes) {
+            handle(webSocket, bytes.utf8());
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            handle(webSocket, text);
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(1000, null);//回应客户端的关闭帧，否则连接线程不会退出
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            end();
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            end();
+        }
+
+        private void handle(WebSocket webSocket, String text) {
+            JSONObject j;
+            try {
+                j = JSON.parseObject(text);
+            } catch (Exception e) {
+                webSocket.close(4008, "invalid json");
+                return;
+            }
+            String type = j.getString("type");
+            if ("audio".equals(type)) {
+                if (errorCode != 0) {
+                    webSocket.close(errorCode, "mock error");
+                    return;
+                }
+                JSONObject data = j.getJSONObject("data");
+                int length = Base64.getDecoder().decode(data.getString("audio")).length;
+                received += length;
+                sentenceReceived += length;
+                if (connection <= dropConnections && received >= dropAfterBytes) {
+                    webSocket.close(1000, null);
+                    return;
+                }
+                if (!partialSent) {
+                    partialSent = true;
+                    send(webSocket, sentence("origin", "origin " + connection + "-" + sentence, false),
+                            sentence("translation", "translation " + connection + "-" + sentence, false));
+                }
+                if (sentenceReceived >= sentenceBytes) {
+                    finishSentence(webSocket);
+                }
+            } else if ("audio/end".equals(type)) {
+                if (sentenceReceived > 0) {
+                    finishSentence(webSocket);
+                }
+                send(webSocket, message("origin/end", null), message("translation/end", null),
+                        message("audio/end", null));
+            } else {
+                webSocket.close(4008, "unknown type");
+            }
+        }
+
+        private void finishSentence(WebSocket webSocket) {
+            ByteString[] messages = new ByteString[audioFramesPerSentence + 3];
+            messages[0] = sentence("origin", "origin " + connection + "-" + sentence + ".", true);
+            messages[1] = sentence("translation", "translation " + connection + "-" + sentence + ".", true);
+            for (int i = 0; i < audioFramesPerSentence; i++) {
+                messages[2 + i] = audioMessage;
+            }
+            messages[messages.length - 1] = message("audio/flush", null);
+            send(webSocket, messages);
+            sentence++;
+            sentenceReceived = 0;
+            partialSent = false;
+        }
+
+        private void send(WebSocket webSocket, ByteString... messages) {//同一延迟按提交顺序发送
+            scheduler.schedule(() -> {
+                for (ByteString message : messages) {
+                    webSocket.send(message);
+                }
+            }, resultDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.xap.voicetranslate.loadtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.xap.voicetranslate.callback.MetricsListener;
+import com.xap.voicetranslate.callback.SessionResult;
+import com.xap.voicetranslate.utils.ComplexSpeech;
+import com.xap.voicetranslate.utils.ResultCollector;
+import com.xap.voicetranslate.utils.STSSession;
+import com.xap.voicetranslate.utils.SessionMetrics;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 静音过滤的 keepMillis 小于切换连接所需的静音时长时，长音频仍应在静音处切换连接，而不是每段都到上限才切断。
+ */
+public class SilenceRotationTest {
+    private static final int RATE = 16000;
+
+    private MockXapServer server;
+    private ComplexSpeech speech;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockXapServer().resultDelay(10);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (speech != null) {
+            speech.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void rotatesAtSuppressedSilence() throws Exception {
+        speech = new ComplexSpeech.Builder()
+                .url(server.url())
+                .realTimeFactor(0)
+                .legDuration(1, 6)
+                .suppressSilence(100)
+                .metrics(new MetricsListener() {
+                })
+                .build();
+        //10 句：每句 0.8 秒语音后接 0.5 秒静音，过滤后每句上传约 1 秒
+        byte[] pcm = speechWithPauses(10, 800, 500);
+        ResultCollector collector = new ResultCollector();
+        STSSession session = speech.startSTS("en-US", "zh", new ByteArrayInputStream(pcm), null, collector);
+        SessionResult result = collector.result().get(30, TimeUnit.SECONDS);
+
+        SessionMetrics metrics = session.getMetrics();
+        assertEquals(0, result.getLostMillis());
+        assertTrue("silence should be suppressed", metrics.getSuppressedBytes() > 0);
+        assertEquals(session.getSuppressedMillis(), result.getSuppressedMillis());
+        assertEquals(metrics.getSuppressedBytes() * 1000 / (RATE * 2), result.getSuppressedMillis());
+        //在静音处切换时约每 2 句一段；只按上限切换时 10 秒音频只有 2 段
+        assertTrue("legs = " + metrics.getLegs(), metrics.getLegs() >= 4);
+    }
+
+    private static byte[] speechWithPauses(int sentences, int speechMillis, int pauseMillis) {
+        int speechSamples = RATE * speechMillis / 1000;
+        int pauseSamples = RATE * pauseMillis / 1000;
+        byte[] pcm = new byte[sentences * (speechSamples + pauseSamples) * 2];
+        int pos = 0;
+        for (int s = 0; s < sentences; s++) {
+            for (int i = 0; i < speechSamples; i++) {
+                short v = (short) (Math.sin(i * 0.1) * 5000);
+                pcm[pos++] = (byte) v;
+                pcm[pos++] = (byte) (v >> 8);
+            }
+            pos += pauseSamples * 2;
+        }
+        return pcm;
+    }
+}
@@ -0,0 +1,25 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * JDK 21 及以上的会话线程池：每个任务一个虚拟线程，阻塞读取输入流或执行耗时回调时不占用平台线程，
+ * maxThreads 不再生效。
+ */
+final class SessionExecutors {
+
+    private SessionExecutors() {
+    }
+
+    static ExecutorService newExecutor(String prefix, int maxThreads) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix + "-", 1).factory());
+    }
+
+    /**
+     * 读取输入流的线程池，同样每个任务一个虚拟线程。
+     */
+    static ExecutorService newInputExecutor(String prefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix + "-", 1).factory());
+    }
+}
@@ -0,0 +1,31 @@
+package com.xap.voicetranslate;
+
+import com.xap.voicetranslate.utils.BatchReport;
+import com.xap.voicetranslate.utils.BatchTranslator;
+import com.xap.voicetranslate.utils.ComplexSpeech;
+import java.io.File;
+
+/**
+ * 批量翻译入口：java com.xap.voicetranslate.Batch 输入目录或列表文件 输出目录 [并发数]
+ */
+public class Batch {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.out.println("用法：Batch <输入目录或列表文件> <输出目录> [并发数]");
+			return;
+		}
+		int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+		try (ComplexSpeech complexSpeech = new ComplexSpeech.Builder()
+				.maxConnections(concurrency * 2, concurrency * 2)//切换连接时会预建下一段连接
+				.build()) {
+			BatchReport report = new BatchTranslator.Builder(complexSpeech)
+					.languages(Constant.FROM, Constant.TO)
+					.outputDir(new File(args[1]))
+					.concurrency(concurrency)
+					.build()
+					.run(new File(args[0]));
+			System.out.println(report);
+		}
+	}
+}
@@ -1,38 +1,32 @@
 package com.xap.voicetranslate;
 
 import com.xap.voicetranslate.callback.STSCallback;
+import com.xap.voicetranslate.callback.TranscriptEvent;
 import com.xap.voicetranslate.utils.ComplexSpeech;
+import com.xap.voicetranslate.utils.TranscriptAssembler;
+import java.util.concurrent.CountDownLatch;
 
 
 public class Test {
-    static String recognize, translate;
 
-	public static void main(String args[]) {
-		recognize = "";
-		translate = "";
+	public static void main(String args[]) throws InterruptedException {
 		ComplexSpeech complexSpeech = new ComplexSpeech();
-		String[] tempRecognize = new String[1], tempTranslate = new String[1];
+		CountDownLatch done = new CountDownLatch(1);//会话结束或出错时释放
+		TranscriptAssembler transcript = new TranscriptAssembler(event -> {//只收到增量，不必每次拼接全文
+			if (event.getType() == TranscriptEvent.Type.APPENDED) {
+				String name = event.getStream() == TranscriptEvent.Stream.RECOGNITION ? "识别结果：" : "翻译结果：";
+				System.out.println(name + event.getText());//打印最终结果
+			}
+		});
 		STSCallback stsCallback = new STSCallback() {//设置回调
             @Override
             public void onRecognizeSuccess(boolean isFinal, String recognizeResult) {
-            	if (!isFinal) {
-                    tempRecognize[0] = recognizeResult;//保存中间结果
-                } else {
-                    recognize += recognizeResult;
-                    tempRecognize[0] = "";
-                    System.out.println("识别结果：" + recognize + tempRecognize[0]);//打印最终结果
-                }
+            	transcript.onRecognizeSuccess(isFinal, recognizeResult);
             }
 
             @Override
             public void onTranslateSuccess(boolean isFinal, String translateResult) {
-            	if (!isFinal) {
-            		tempTranslate[0] = translateResult;
-                } else {
-                	translate += translateResult;
-                    tempTranslate[0] = "";
-                    System.out.println("翻译结果：" + translate + tempTranslate[0]);
-                }
+            	transcript.onTranslateSuccess(isFinal, translateResult);
             }
 
             @Override
@@ -47,9 +41,21 @@ public class Test {
             @Override
             public void onError(int errorCode, String error) {
                 System.out.println("错误码:" + errorCode + "说明:" + error);
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                System.out.println("翻译完成：" + transcript.getTranslation().getFinalText());
+                done.countDown();
             }
         };
-        
-        complexSpeech.startSTS(Constant.FROM , Constant.TO, Constant.IN_FILE, Constant.OUT_FILE, stsCallback);
+
+        try {
+            complexSpeech.startSTS(Constant.FROM , Constant.TO, Constant.IN_FILE, Constant.OUT_FILE, stsCallback);
+            done.await();//等待结果返回完毕
+        } finally {
+            complexSpeech.close();
+        }
 	}
 }
@@ -0,0 +1,20 @@
+package com.xap.voicetranslate.callback;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 一段合成音频（16bit 单声道 PCM），缓冲区来自内部的缓冲池。
+ * 使用完毕后必须调用 {@link #release()} 归还，之后不能再访问 {@link #buffer()}。
+ */
+public interface AudioChunk {
+
+    /**
+     * 音频数据，position 到 limit 之间为有效内容。
+     */
+    ByteBuffer buffer();
+
+    /**
+     * 归还缓冲区，可在回调返回后的任意线程调用，重复调用无效。
+     */
+    void release();
+}
@@ -0,0 +1,49 @@
+package com.xap.voicetranslate.callback;
+
+/**
+ * 一句完整的合成音频（以 audio/flush 为界）及其对应的最终翻译文本。
+ */
+public class AudioSegment {
+    private final int index;
+    private final String translation;
+    private final String voicePath;
+    private final long audioBytes;
+    private final int sampleRate;
+
+    public AudioSegment(int index, String translation, String voicePath, long audioBytes, int sampleRate) {
+        this.index = index;
+        this.translation = translation;
+        this.voicePath = voicePath;
+        this.audioBytes = audioBytes;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * 在会话中的序号，从 0 开始。
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * 对应的最终翻译文本，服务端未返回时为 null。
+     */
+    public String getTranslation() {
+        return translation;
+    }
+
+    /**
+     * wav 文件路径，未指定输出目录时为 null。
+     */
+    public String getVoicePath() {
+        return voicePath;
+    }
+
+    public long getAudioBytes() {
+        return audioBytes;
+    }
+
+    public long getDurationMillis() {
+        return audioBytes * 1000 / (sampleRate * 2L);
+    }
+}
@@ -0,0 +1,22 @@
+package com.xap.voicetranslate.callback;
+
+import com.xap.voicetranslate.utils.SessionMetrics;
+
+/**
+ * 会话指标监听，通过 {@code ComplexSpeech.Builder#metrics} 设置，未设置（且未开启 JMX）时不采集任何指标。
+ * 回调在会话的内部线程上执行，应尽快返回。
+ */
+public interface MetricsListener {
+
+    /**
+     * 连接建立，此时 {@link SessionMetrics#getConnectMillis()} 已可用。
+     */
+    default void onConnected(SessionMetrics metrics) {
+    }
+
+    /**
+     * 会话结束（正常结束、出错或取消），之后指标不再变化。
+     */
+    default void onSessionEnd(SessionMetrics metrics) {
+    }
+}
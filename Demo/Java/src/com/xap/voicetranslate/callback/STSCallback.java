@@ -1,9 +1,48 @@
 package com.xap.voicetranslate.callback;
 
+/**
+ * 会话回调。同一会话的回调在回调线程上按顺序执行，不会并发，也不占用网络读线程，
+ * 见 {@link com.xap.voicetranslate.utils.ComplexSpeech.Builder#callbackQueue}。
+ */
 public interface STSCallback {
     void onRecognizeSuccess(boolean isFinal, String recognizeResult);
     void onTranslateSuccess(boolean isFinal, String translateResult);
+
+    /**
+     * 一句合成音频接收完成。
+     *
+     * @param voicePath wav 文件路径；未指定输出目录时为 null
+     */
     void onFinish(String voicePath);
     void onOpen();
     void onError(int errorCode, String error);
+
+    /**
+     * 收到一段合成音频，到达即回调，不必等待 audio/flush。
+     * 实现方负责在用完后调用 {@link AudioChunk#release()}，默认实现直接归还。
+     */
+    default void onAudio(AudioChunk chunk) {
+        chunk.release();
+    }
+
+    /**
+     * 一句合成音频及其最终翻译文本，按句依次回调，可据此逐句播放。
+     */
+    default void onSegment(AudioSegment segment) {
+    }
+
+    /**
+     * 上传中的连接断开后已自动重连：断开的连接上已发送、尚未返回最终结果的音频不会再有结果，
+     * 识别和翻译文本在此处可能有缺口。在重连后的结果之前回调，会话继续进行。
+     *
+     * @param lostMillis 断开的连接上已发送的音频时长（毫秒），是缺口的上限
+     */
+    default void onAudioLost(long lostMillis) {
+    }
+
+    /**
+     * 识别、翻译和合成音频全部返回完毕，连接随后关闭。
+     */
+    default void onComplete() {
+    }
 }
@@ -0,0 +1,125 @@
+package com.xap.voicetranslate.callback;
+
+/**
+ * 会话结果事件，由 {@code SessionPublisher} 按到达顺序发布。
+ * AUDIO 事件的音频来自内部缓冲池，订阅方用完后需调用 {@link AudioChunk#release()}。
+ */
+public final class STSEvent {
+
+    public enum Type {
+        /**
+         * 识别结果，{@link #isFinal()} 区分中间结果与最终结果。
+         */
+        RECOGNITION,
+        /**
+         * 翻译结果，{@link #isFinal()} 区分中间结果与最终结果。
+         */
+        TRANSLATION,
+        /**
+         * 一段合成音频，见 {@link #getAudio()}。
+         */
+        AUDIO,
+        /**
+         * 一句完整的合成音频及其翻译文本，见 {@link #getSegment()}。
+         */
+        SEGMENT,
+        /**
+         * 连接断开重连，部分音频没有结果，见 {@link #getLostMillis()}。
+         */
+        AUDIO_LOST
+    }
+
+    private final Type type;
+    private final boolean isFinal;
+    private final String text;
+    private final AudioChunk audio;
+    private final AudioSegment segment;
+    private final long lostMillis;
+
+    private STSEvent(Type type, boolean isFinal, String text, AudioChunk audio, AudioSegment segment) {
+        this(type, isFinal, text, audio, segment, 0);
+    }
+
+    private STSEvent(Type type, boolean isFinal, String text, AudioChunk audio, AudioSegment segment,
+                     long lostMillis) {
+        this.type = type;
+        this.isFinal = isFinal;
+        this.text = text;
+        this.audio = audio;
+        this.segment = segment;
+        this.lostMillis = lostMillis;
+    }
+
+    public static STSEvent recognition(boolean isFinal, String text) {
+        return new STSEvent(Type.RECOGNITION, isFinal, text, null, null);
+    }
+
+    public static STSEvent translation(boolean isFinal, String text) {
+        return new STSEvent(Type.TRANSLATION, isFinal, text, null, null);
+    }
+
+    public static STSEvent audio(AudioChunk audio) {
+        return new STSEvent(Type.AUDIO, true, null, audio, null);
+    }
+
+    public static STSEvent segment(AudioSegment segment) {
+        return new STSEvent(Type.SEGMENT, true, null, null, segment);
+    }
+
+    public static STSEvent audioLost(long lostMillis) {
+        return new STSEvent(Type.AUDIO_LOST, true, null, null, null, lostMillis);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * 是否为最终结果，RECOGNITION、TRANSLATION 以外的事件始终为 true。
+     */
+    public boolean isFinal() {
+        return isFinal;
+    }
+
+    /**
+     * RECOGNITION、TRANSLATION 事件的文本，其他事件为 null。
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * AUDIO 事件的音频，其他事件为 null。
+     */
+    public AudioChunk getAudio() {
+        return audio;
+    }
+
+    /**
+     * SEGMENT 事件的句子，其他事件为 null。
+     */
+    public AudioSegment getSegment() {
+        return segment;
+    }
+
+    /**
+     * AUDIO_LOST 事件中没有结果的音频时长上限（毫秒），见 {@link STSCallback#onAudioLost}，其他事件为 0。
+     */
+    public long getLostMillis() {
+        return lostMillis;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case AUDIO:
+                return "STSEvent{AUDIO, " + audio.buffer().remaining() + "B}";
+            case SEGMENT:
+                return "STSEvent{SEGMENT, " + segment.getIndex() + ", " + segment.getTranslation() + "}";
+            case AUDIO_LOST:
+                return "STSEvent{AUDIO_LOST, " + lostMillis + "ms}";
+            default:
+                return "STSEvent{" + type + (isFinal ? ", final, " : ", partial, ") + text + "}";
+        }
+    }
+}
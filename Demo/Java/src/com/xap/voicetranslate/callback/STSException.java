@@ -0,0 +1,19 @@
+package com.xap.voicetranslate.callback;
+
+/**
+ * 会话以错误结束，错误码与 {@link STSCallback#onError} 相同。
+ */
+public class STSException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final int errorCode;
+
+    public STSException(int errorCode, String message) {
+        super(errorCode + ": " + message);
+        this.errorCode = errorCode;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,74 @@
+package com.xap.voicetranslate.callback;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 会话的全部最终结果，由 {@code ResultCollector} 在会话正常结束时生成。
+ */
+public final class SessionResult {
+    private final List<String> recognitions;
+    private final List<String> translations;
+    private final List<AudioSegment> segments;
+    private final byte[] audio;
+    private final int sampleRate;
+    private final long lostMillis;
+    private final long suppressedMillis;
+
+    public SessionResult(List<String> recognitions, List<String> translations, List<AudioSegment> segments,
+                         byte[] audio, int sampleRate, long lostMillis, long suppressedMillis) {
+        this.recognitions = Collections.unmodifiableList(recognitions);
+        this.translations = Collections.unmodifiableList(translations);
+        this.segments = Collections.unmodifiableList(segments);
+        this.audio = audio;
+        this.sampleRate = sampleRate;
+        this.lostMillis = lostMillis;
+        this.suppressedMillis = suppressedMillis;
+    }
+
+    /**
+     * 按顺序排列的最终识别结果，每句一条。
+     */
+    public List<String> getRecognitions() {
+        return recognitions;
+    }
+
+    /**
+     * 按顺序排列的最终翻译结果，每句一条。
+     */
+    public List<String> getTranslations() {
+        return translations;
+    }
+
+    public List<AudioSegment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * 全部合成音频（16bit 单声道 PCM），未要求保留音频时为空数组。
+     */
+    public byte[] getAudio() {
+        return audio;
+    }
+
+    /**
+     * 合成音频的采样率。
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 断线重连时没有结果的音频时长上限（毫秒），为 0 时结果完整，见 {@link STSCallback#onAudioLost}。
+     */
+    public long getLostMillis() {
+        return lostMillis;
+    }
+
+    /**
+     * 静音过滤未上传的静音时长（毫秒），未开启静音过滤时为 0。
+     */
+    public long getSuppressedMillis() {
+        return suppressedMillis;
+    }
+}
@@ -0,0 +1,103 @@
+package com.xap.voicetranslate.callback;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 文本的增量变化，由 {@code TranscriptAssembler} 发出。下游按事件维护显示内容即可，不必每次重发全文：
+ * APPENDED 在末尾追加一句最终结果并清空中间结果，PARTIAL 替换当前的中间结果。
+ */
+public final class TranscriptEvent {
+
+    public enum Stream {
+        RECOGNITION,
+        TRANSLATION
+    }
+
+    public enum Type {
+        /**
+         * 追加一句最终结果，同时清空中间结果。
+         */
+        APPENDED,
+        /**
+         * 替换当前的中间结果，text 为空串表示清空。
+         */
+        PARTIAL
+    }
+
+    private final Stream stream;
+    private final Type type;
+    private final int index;
+    private final String text;
+    private final long startMillis;
+    private final long timeMillis;
+
+    private TranscriptEvent(Stream stream, Type type, int index, String text, long startMillis, long timeMillis) {
+        this.stream = stream;
+        this.type = type;
+        this.index = index;
+        this.text = text;
+        this.startMillis = startMillis;
+        this.timeMillis = timeMillis;
+    }
+
+    public static TranscriptEvent appended(Stream stream, int index, String text, long startMillis, long endMillis) {
+        return new TranscriptEvent(stream, Type.APPENDED, index, text, startMillis, endMillis);
+    }
+
+    public static TranscriptEvent partial(Stream stream, int index, String text, long startMillis, long timeMillis) {
+        return new TranscriptEvent(stream, Type.PARTIAL, index, text, startMillis, timeMillis);
+    }
+
+    public Stream getStream() {
+        return stream;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * 句子序号，从 0 开始；PARTIAL 事件为该中间结果成为最终结果后的序号。
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 该句收到第一个结果的时间（毫秒时间戳）。
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * 事件发生的时间（毫秒时间戳），APPENDED 事件即该句结束的时间。
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * 紧凑的 JSON 表示，如 {"stream":"recognition","type":"appended","index":3,"text":"...","start":...,"time":...}，
+     * 可直接转发给前端。
+     */
+    public String toJson() {
+        JSONObject json = new JSONObject(true);
+        json.put("stream", stream == Stream.RECOGNITION ? "recognition" : "translation");
+        json.put("type", type == Type.APPENDED ? "appended" : "partial");
+        json.put("index", index);
+        json.put("text", text);
+        json.put("start", startMillis);
+        json.put("time", timeMillis);
+        return json.toJSONString();
+    }
+
+    @Override
+    public String toString() {
+        return "TranscriptEvent{" + stream + ", " + type + ", " + index + ", " + text + "}";
+    }
+}
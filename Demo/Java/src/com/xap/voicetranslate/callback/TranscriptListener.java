@@ -0,0 +1,8 @@
+package com.xap.voicetranslate.callback;
+
+/**
+ * 文本增量监听，在会话的回调线程上按顺序执行。
+ */
+public interface TranscriptListener {
+    void onTranscript(TranscriptEvent event);
+}
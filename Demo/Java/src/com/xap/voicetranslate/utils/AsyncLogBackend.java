@@ -0,0 +1,94 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步日志：调用线程只把日志放入定长环形队列，由后台线程写到 delegate，队列满时丢弃并计数，不阻塞调用线程。
+ * 后台线程在第一条日志时启动，进程退出时写完队列中剩余的日志。
+ */
+public class AsyncLogBackend implements LogBackend {
+    private final LogBackend delegate;
+    private final ArrayBlockingQueue<Entry> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Thread writer;
+
+    public AsyncLogBackend(LogBackend delegate, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity < 1");
+        }
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void log(LogLevel level, String message, Throwable error) {
+        if (writer == null) {
+            start();
+        }
+        if (!queue.offer(new Entry(level, message, error))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * 因队列已满被丢弃的日志条数。
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        Thread t = new Thread(this::run, "xap-log");
+        t.setDaemon(true);
+        t.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "xap-log-flush"));
+        writer = t;
+    }
+
+    private void run() {
+        long reported = 0;
+        try {
+            while (true) {
+                write(queue.take());
+                long lost = dropped.get();
+                if (lost != reported) {
+                    delegate.log(LogLevel.WARN, (lost - reported) + " log messages dropped", null);
+                    reported = lost;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            write(entry);
+        }
+    }
+
+    private void write(Entry entry) {
+        try {
+            delegate.log(entry.level, entry.message, entry.error);
+        } catch (RuntimeException e) {
+            //日志输出失败不影响后续日志
+        }
+    }
+
+    private static final class Entry {
+        final LogLevel level;
+        final String message;
+        final Throwable error;
+
+        Entry(LogLevel level, String message, Throwable error) {
+            this.level = level;
+            this.message = message;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.xap.voicetranslate.utils;
+
+import com.xap.voicetranslate.callback.AudioChunk;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 合成音频的缓冲池。缓冲区为定长堆内存，超过容量的音频按需单独分配且不回收；
+ * 池中最多保留 maxPooled 个空闲缓冲区，未归还的缓冲区由 GC 回收，不会导致池泄漏。
+ */
+class AudioBufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<byte[]> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    AudioBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * 取出一个至少 minSize 字节的缓冲区。
+     */
+    byte[] acquire(int minSize) {
+        if (minSize > bufferSize) {
+            return new byte[minSize];
+        }
+        byte[] buffer = free.poll();
+        if (buffer == null) {
+            return new byte[bufferSize];
+        }
+        freeCount.decrementAndGet();
+        return buffer;
+    }
+
+    void release(byte[] buffer) {
+        if (buffer.length != bufferSize) {
+            return;
+        }
+        if (freeCount.incrementAndGet() > maxPooled) {
+            freeCount.decrementAndGet();
+            return;
+        }
+        free.offer(buffer);
+    }
+
+    AudioChunk chunk(byte[] buffer, int length) {
+        return new PooledChunk(this, buffer, length);
+    }
+
+    private static final class PooledChunk implements AudioChunk {
+        private static final AtomicIntegerFieldUpdater<PooledChunk> RELEASED =
+                AtomicIntegerFieldUpdater.newUpdater(PooledChunk.class, "released");
+
+        private final AudioBufferPool pool;
+        private final byte[] array;
+        private final ByteBuffer buffer;
+        private volatile int released;
+
+        PooledChunk(AudioBufferPool pool, byte[] array, int length) {
+            this.pool = pool;
+            this.array = array;
+            this.buffer = ByteBuffer.wrap(array, 0, length);
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public void release() {
+            if (RELEASED.compareAndSet(this, 0, 1)) {
+                pool.release(array);
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.xap.voicetranslate.Constant;
+
+/**
+ * 输入音频的格式：采样率、声道数和采样精度（8/16/24/32 bit 整数或 32 bit 浮点，小端交错存放）。
+ * 与上传格式（16bit 单声道）不一致时，会话在上传前自动混音并重采样。
+ */
+public final class AudioFormat {
+    /**
+     * 默认格式：Constant.AUDIO_RATE 采样率的 16bit 单声道 PCM。
+     */
+    public static final AudioFormat DEFAULT = pcm(Constant.AUDIO_RATE, 1, 16);
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final int sampleRate;
+    private final int channels;
+    private final int bitsPerSample;
+    private final boolean floating;
+    private final long dataLength;
+
+    private AudioFormat(int sampleRate, int channels, int bitsPerSample, boolean floating, long dataLength) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bitsPerSample = bitsPerSample;
+        this.floating = floating;
+        this.dataLength = dataLength;
+    }
+
+    /**
+     * 整数 PCM 格式，8bit 为无符号，其余为有符号小端。
+     */
+    public static AudioFormat pcm(int sampleRate, int channels, int bitsPerSample) {
+        if (bitsPerSample != 8 && bitsPerSample != 16 && bitsPerSample != 24 && bitsPerSample != 32) {
+            throw new IllegalArgumentException("Unsupported bits per sample: " + bitsPerSample);
+        }
+        return create(sampleRate, channels, bitsPerSample, false, -1);
+    }
+
+    /**
+     * 32bit 浮点 PCM 格式，取值范围 [-1, 1]。
+     */
+    public static AudioFormat pcmFloat(int sampleRate, int channels) {
+        return create(sampleRate, channels, 32, true, -1);
+    }
+
+    private static AudioFormat create(int sampleRate, int channels, int bitsPerSample, boolean floating,
+                                      long dataLength) {
+        if (sampleRate < 1000 || sampleRate > 192000) {
+            throw new IllegalArgumentException("Unsupported sample rate: " + sampleRate);
+        } else if (channels < 1 || channels > 32) {
+            throw new IllegalArgumentException("Unsupported channels: " + channels);
+        }
+        return new AudioFormat(sampleRate, channels, bitsPerSample, floating, dataLength);
+    }
+
+    /**
+     * 读取 WAV 文件头，读取后输入流位于音频数据的起始处，可直接传给
+     * {@link ComplexSpeech#startSTS(String, String, InputStream, AudioFormat, String, com.xap.voicetranslate.callback.STSCallback)}。
+     *
+     * @throws IOException 不是 WAV 文件或编码不受支持
+     */
+    public static AudioFormat readWavHeader(InputStream in) throws IOException {
+        byte[] b = new byte[16];
+        readFully(in, b, 12);
+        if (!chunkIs(b, 0, "RIFF") || !chunkIs(b, 8, "WAVE")) {
+            throw new IOException("Not a WAV file!");
+        }
+        int tag = -1, channels = 0, sampleRate = 0, bits = 0;
+        while (true) {
+            readFully(in, b, 8);
+            long size = le32(b, 4);
+            if (chunkIs(b, 0, "fmt ")) {
+                if (size < 16) {
+                    throw new IOException("Malformed WAV header!");
+                }
+                readFully(in, b, 16);
+                tag = le16(b, 0);
+                channels = le16(b, 2);
+                sampleRate = (int) le32(b, 4);
+                bits = le16(b, 14);
+                long rest = size - 16;
+                if (tag == WAVE_FORMAT_EXTENSIBLE && rest >= 10) {//cbSize, validBits, channelMask, 子格式 GUID 的前两个字节
+                    readFully(in, b, 10);
+                    tag = le16(b, 8);
+                    rest -= 10;
+                }
+                skipFully(in, rest + (size & 1));
+            } else if (chunkIs(b, 0, "data")) {
+                if (tag == -1) {
+                    throw new IOException("Malformed WAV header!");
+                }
+                //流式写出的 WAV 长度字段可能为 0 或 0xFFFFFFFF，此时读到流末尾
+                long length = size == 0 || size == 0xFFFFFFFFL ? -1 : size;
+                try {
+                    if (tag == WAVE_FORMAT_PCM) {
+                        return pcm(sampleRate, channels, bits).withDataLength(length);
+                    } else if (tag == WAVE_FORMAT_IEEE_FLOAT && bits == 32) {
+                        return create(sampleRate, channels, 32, true, length);
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(e.getMessage());
+                }
+                throw new IOException("Unsupported WAV encoding: " + tag + "/" + bits + "bit");
+            } else {
+                skipFully(in, size + (size & 1));//LIST 等其他块，按偶数对齐
+            }
+        }
+    }
+
+    private AudioFormat withDataLength(long length) {
+        return new AudioFormat(sampleRate, channels, bitsPerSample, floating, length);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    public boolean isFloating() {
+        return floating;
+    }
+
+    /**
+     * 从 WAV 文件头读到的音频数据字节数，未知时为 -1。
+     */
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    /**
+     * 一帧（所有声道各一个样本）的字节数。
+     */
+    public int getFrameBytes() {
+        return bitsPerSample / 8 * channels;
+    }
+
+    /**
+     * 是否可不经转换直接按指定采样率上传。
+     */
+    boolean isUploadFormat(int rate) {
+        return sampleRate == rate && channels == 1 && bitsPerSample == 16 && !floating;
+    }
+
+    private static boolean chunkIs(byte[] b, int offset, String id) {
+        for (int i = 0; i < 4; i++) {
+            if (b[offset + i] != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int le16(byte[] b, int offset) {
+        return (b[offset] & 0xff) | (b[offset + 1] & 0xff) << 8;
+    }
+
+    private static long le32(byte[] b, int offset) {
+        return (le16(b, offset) | (long) le16(b, offset + 2) << 16) & 0xFFFFFFFFL;
+    }
+
+    private static void readFully(InputStream in, byte[] b, int length) throws IOException {
+        int n = 0;
+        while (n < length) {
+            int len = in.read(b, n, length - n);
+            if (len == -1) {
+                throw new EOFException("Malformed WAV header!");
+            }
+            n += len;
+        }
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException("Malformed WAV header!");
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sampleRate + "Hz/" + channels + "ch/" + bitsPerSample + "bit" + (floating ? " float" : "");
+    }
+}
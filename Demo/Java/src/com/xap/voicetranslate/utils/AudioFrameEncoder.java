@@ -0,0 +1,74 @@
+package com.xap.voicetranslate.utils;
+
+import java.nio.charset.StandardCharsets;
+
+import okio.ByteString;
+
+/**
+ * 音频上传帧编码：直接把固定的 JSON 外壳和 Base64 数据写入线程内复用的缓冲区，
+ * 每帧只产生一次拷贝（最终的 {@link ByteString}），不再生成中间的 String 和 JSONObject。
+ */
+final class AudioFrameEncoder {
+    private static final byte[] PREFIX = "{\"type\":\"audio\",\"data\":{\"audio\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUFFIX = "\"}}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    static final ByteString END_FRAME = ByteString.encodeUtf8("{\"type\":\"audio/end\"}");
+
+    //每个上传线程一个缓冲区，足够容纳最大帧
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[encodedLength(0x8FFE)]);
+
+    private AudioFrameEncoder() {
+    }
+
+    static int encodedLength(int length) {
+        return PREFIX.length + (length + 2) / 3 * 4 + SUFFIX.length;
+    }
+
+    /**
+     * 将 {@code pcm[offset, offset + length)} 编码为一帧完整的 JSON 写入 out。
+     *
+     * @return 写入的字节数
+     */
+    static int encode(byte[] pcm, int offset, int length, byte[] out) {
+        System.arraycopy(PREFIX, 0, out, 0, PREFIX.length);
+        int o = PREFIX.length;
+        int end = offset + length - length % 3;
+        int i = offset;
+        while (i < end) {
+            int bits = (pcm[i++] & 0xff) << 16 | (pcm[i++] & 0xff) << 8 | (pcm[i++] & 0xff);
+            out[o++] = BASE64[(bits >>> 18) & 0x3f];
+            out[o++] = BASE64[(bits >>> 12) & 0x3f];
+            out[o++] = BASE64[(bits >>> 6) & 0x3f];
+            out[o++] = BASE64[bits & 0x3f];
+        }
+        int remain = length % 3;
+        if (remain == 1) {
+            int bits = (pcm[i] & 0xff) << 16;
+            out[o++] = BASE64[(bits >>> 18) & 0x3f];
+            out[o++] = BASE64[(bits >>> 12) & 0x3f];
+            out[o++] = '=';
+            out[o++] = '=';
+        } else if (remain == 2) {
+            int bits = (pcm[i] & 0xff) << 16 | (pcm[i + 1] & 0xff) << 8;
+            out[o++] = BASE64[(bits >>> 18) & 0x3f];
+            out[o++] = BASE64[(bits >>> 12) & 0x3f];
+            out[o++] = BASE64[(bits >>> 6) & 0x3f];
+            out[o++] = '=';
+        }
+        System.arraycopy(SUFFIX, 0, out, o, SUFFIX.length);
+        return o + SUFFIX.length;
+    }
+
+    static ByteString encodeFrame(byte[] pcm, int offset, int length) {
+        byte[] buffer = BUFFERS.get();
+        int needed = encodedLength(length);
+        if (buffer.length < needed) {
+            buffer = new byte[needed];
+            BUFFERS.set(buffer);
+        }
+        int n = encode(pcm, offset, length, buffer);
+        return ByteString.of(buffer, 0, n);
+    }
+}
@@ -0,0 +1,17 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 上传音频的数据源（16bit 单声道 PCM）。
+ */
+interface AudioSource extends Closeable {
+
+    /**
+     * 非阻塞读取。
+     *
+     * @return 读取的字节数；暂无数据时返回 0，数据已全部读完返回 -1
+     */
+    int read(byte[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,208 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.WebSocket;
+import okio.ByteString;
+
+/**
+ * 按实时倍速分帧上传音频，运行在 {@link ComplexSpeech} 的上传调度线程上，不占用 OkHttp 的读线程。
+ * 每个周期发送一帧；WebSocket 发送队列超过上限时跳过本周期，等待队列消化（背压）。
+ * 倍速小于等于 0 时不限速，每个周期尽量发送直到触发背压。
+ * 每个上传器只负责一段连接：本段音频超过 minLegBytes 后遇到静音、或达到 maxLegBytes 时结束本段，由会话切换到下一段连接继续上传。
+ * 开启静音过滤时由 {@link SilenceFilter} 报告静音（被过滤的静音也能切换），否则按能量阈值自行检测。
+ */
+class AudioUploader implements Runnable {
+    private static final long UNPACED_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long KEEPALIVE_NANOS = TimeUnit.SECONDS.toNanos(10);//服务端 16s 无数据断开
+    static final int SILENCE_MILLIS = 300;//切换连接所需的最短静音
+
+    private final STSSession session;
+    private final STSSession.Leg leg;
+    private final WebSocket webSocket;
+    private final AudioSource source;
+    private final SilenceFilter filter;//未开启静音过滤时为 null
+    private final byte[] frame;
+    private final long periodNanos;
+    private final boolean paced;
+    private final long maxQueueBytes;
+    private final SessionMetrics metrics;
+
+    //分段
+    private final long minLegBytes, maxLegBytes, prepareBytes, silenceBytes;
+    private final double silenceThreshold;
+    private volatile long legBytes;//本段已发送的字节数，断线时由读线程读取
+    private long silentBytes;
+    private boolean prepared;
+    private long lastSendNanos = System.nanoTime();
+
+    private volatile ScheduledFuture<?> future;
+    private volatile boolean finished;
+
+    AudioUploader(STSSession session, STSSession.Leg leg, WebSocket webSocket, AudioSource source, int sampleRate,
+                  int frameMillis, double realTimeFactor, long maxQueueBytes, int minLegSeconds, int maxLegSeconds,
+                  double silenceThreshold) {
+        this.session = session;
+        this.leg = leg;
+        this.webSocket = webSocket;
+        this.source = source;
+        this.filter = source instanceof SilenceFilter ? (SilenceFilter) source : null;
+        this.frame = new byte[frameBytes(sampleRate, frameMillis)];
+        this.paced = realTimeFactor > 0;
+        this.periodNanos = paced ? (long) (TimeUnit.MILLISECONDS.toNanos(frameMillis) / realTimeFactor)
+                : UNPACED_PERIOD_NANOS;
+        this.maxQueueBytes = maxQueueBytes;
+        this.metrics = session.getMetrics();
+        long bytesPerSecond = sampleRate * 2L;
+        this.minLegBytes = bytesPerSecond * minLegSeconds;
+        this.maxLegBytes = bytesPerSecond * maxLegSeconds;
+        this.prepareBytes = Math.max(minLegBytes, maxLegBytes - bytesPerSecond * 10);//提前建立下一段连接，且空闲不超过 10s
+        this.silenceBytes = bytesPerSecond * SILENCE_MILLIS / 1000;
+        this.silenceThreshold = silenceThreshold;
+    }
+
+    /**
+     * 一帧的字节数（16bit 单声道），不超过单个 JSON 的上限对应的 0x8FFE 字节。
+     */
+    static int frameBytes(int sampleRate, int frameMillis) {
+        long bytes = (long) sampleRate * 2 * frameMillis / 1000;
+        bytes -= bytes % 2;
+        return (int) Math.max(2, Math.min(bytes, 0x8FFE));
+    }
+
+    long legBytes() {
+        return legBytes;
+    }
+
+    void start(ScheduledExecutorService scheduler) {
+        future = scheduler.scheduleAtFixedRate(this, 0, Math.max(1, periodNanos), TimeUnit.NANOSECONDS);
+        if (finished) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * 停止上传并关闭音频来源。
+     */
+    void stop() {
+        finish();
+        try {
+            source.close();
+        } catch (IOException e) {
+            LogUtils.w("close audio source failed", e);
+        }
+    }
+
+    /**
+     * 停止本段上传，音频来源保留给下一段连接。
+     */
+    void finish() {
+        finished = true;
+        ScheduledFuture<?> f = future;
+        if (f != null) {
+            f.cancel(false);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (finished) {
+            return;
+        }
+        if (session.isCancelled()) {
+            stop();
+            return;
+        }
+        try {
+            int frames = paced ? 1 : Integer.MAX_VALUE;
+            while (frames-- > 0) {
+                long queued = webSocket.queueSize();
+                if (metrics != null) {
+                    metrics.queueSize(queued);
+                }
+                if (queued > maxQueueBytes) {//发送队列积压，等待下个周期
+                    return;
+                }
+                int len = source.read(frame, 0, frame.length);
+                if (len == -1) {
+                    LogUtils.d("to send audio/end {}", session.getId());
+                    session.inputEnded(leg);
+                    send(AudioFrameEncoder.END_FRAME);//发送音频结束
+                    stop();
+                    return;
+                }
+                if (len == 0) {
+                    if (filter != null && legBytes >= minLegBytes && filter.takeSilence()) {//静音正被过滤，在静音中切换
+                        rotateLeg();
+                        return;
+                    }
+                    if (System.nanoTime() - lastSendNanos < KEEPALIVE_NANOS) {
+                        return;
+                    }
+                    Arrays.fill(frame, (byte) 0);//长时间没有输入时发送静音，避免服务端空闲断开
+                    len = frame.length;
+                }
+                LogUtils.d("to send {}", len);
+                if (!send(AudioFrameEncoder.encodeFrame(frame, 0, len))) {
+                    finish();//连接已断开，由会话决定是否重连
+                    return;
+                }
+                lastSendNanos = System.nanoTime();
+                if (endOfLeg(len)) {
+                    rotateLeg();
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            LogUtils.w("upload failed", e);
+            finish();
+            session.uploadFailed(leg, 30002, e.getMessage());//结束会话，由会话关闭音频来源
+        }
+    }
+
+    private void rotateLeg() {
+        LogUtils.d("rotate leg {}", session.getId());
+        session.rotate(leg);//后续音频由下一段连接发送
+        send(AudioFrameEncoder.END_FRAME);
+        finish();
+    }
+
+    /**
+     * 本段已发送的音频是否应在此结束：超过下限后遇到足够长的静音，或达到上限。
+     */
+    private boolean endOfLeg(int len) {
+        legBytes += len;
+        if (!prepared && legBytes >= prepareBytes) {
+            prepared = true;
+            session.prepareNextLeg(leg);
+        }
+        if (legBytes >= maxLegBytes) {
+            return true;
+        }
+        boolean silent;
+        if (filter != null) {
+            silent = filter.takeSilence();//下限之前的静音同样取走，不留到下限之后
+        } else if (legBytes < minLegBytes) {
+            return false;
+        } else {
+            silentBytes = AudioUtil.rms(frame, 0, len) < silenceThreshold ? silentBytes + len : 0;
+            silent = silentBytes >= silenceBytes;
+        }
+        return silent && legBytes >= minLegBytes;
+    }
+
+    private boolean send(ByteString data) {
+        boolean isOk = webSocket.send(data);
+        if (metrics != null) {
+            metrics.sent(data.size(), isOk);
+        }
+        if (!isOk) {
+            LogUtils.d("send error {}", session.getId());
+        }
+        return isOk;
+    }
+}
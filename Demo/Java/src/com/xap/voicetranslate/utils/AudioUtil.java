@@ -10,13 +10,19 @@ public class AudioUtil {
     private static int bufferSize = 1280;
 
     public static String convertWaveFile(String inFileName) throws IOException {
+        return convertWaveFile(inFileName, audioRate, 1);
+    }
+
+    /**
+     * 为 16bit PCM 文件加上 WAV 文件头，输出到同名的 .wav 文件。
+     */
+    public static String convertWaveFile(String inFileName, int sampleRate, int channels) throws IOException {
         FileInputStream in = null;
         FileOutputStream out = null;
         long totalAudioLen = 0;
         long totalDataLen = totalAudioLen + 36;
-        long longSampleRate = audioRate;
-        int channels = 1;
-        long byteRate = 16 * audioRate * channels / 8;
+        long longSampleRate = sampleRate;
+        long byteRate = 16 * sampleRate * channels / 8;
         byte[] data = new byte[bufferSize];
         in = new FileInputStream(inFileName);
         out = new FileOutputStream(inFileName.substring(0, inFileName.length()-3) + "wav");
@@ -33,72 +39,48 @@ public class AudioUtil {
     }
 
     public static byte[] getHeader() {
-        long totalAudioLen = 0;
-        long totalDataLen = 0;
-        long longSampleRate = audioRate;
+        return getHeader(0, audioRate, 1);
+    }
+
+    /**
+     * 生成 16bit PCM 的 WAV 文件头。
+     *
+     * @param totalAudioLen 音频数据字节数
+     */
+    public static byte[] getHeader(long totalAudioLen, long longSampleRate, int channels) {
+        long totalDataLen = totalAudioLen + 36;
+        long byteRate = 16 * longSampleRate * channels / 8;
         byte[] header = new byte[44];
-        int channels = 1;
-        long byteRate = 16 * audioRate * channels / 8;
-        header[0] = 'R'; // RIFF
-        header[1] = 'I';
-        header[2] = 'F';
-        header[3] = 'F';
-        header[4] = (byte) (totalDataLen & 0xff);//数据大小
-        header[5] = (byte) ((totalDataLen >> 8) & 0xff);
-        header[6] = (byte) ((totalDataLen >> 16) & 0xff);
-        header[7] = (byte) ((totalDataLen >> 24) & 0xff);
-        header[8] = 'W';//WAVE
-        header[9] = 'A';
-        header[10] = 'V';
-        header[11] = 'E';
-        //FMT Chunk
-        header[12] = 'f'; // 'fmt '
-        header[13] = 'm';
-        header[14] = 't';
-        header[15] = ' ';//过渡字节
-        //数据大小
-        header[16] = 16; // 4 bytes: size of 'fmt ' chunk
-        header[17] = 0;
-        header[18] = 0;
-        header[19] = 0;
-        //编码方式 10H为PCM编码格式
-        header[20] = 1; // format = 1
-        header[21] = 0;
-        //通道数
-        header[22] = (byte) channels;
-        header[23] = 0;
-        //采样率，每个通道的播放速度
-        header[24] = (byte) (longSampleRate & 0xff);
-        header[25] = (byte) ((longSampleRate >> 8) & 0xff);
-        header[26] = (byte) ((longSampleRate >> 16) & 0xff);
-        header[27] = (byte) ((longSampleRate >> 24) & 0xff);
-        //音频数据传送速率,采样率*通道数*采样深度/8
-        header[28] = (byte) (byteRate & 0xff);
-        header[29] = (byte) ((byteRate >> 8) & 0xff);
-        header[30] = (byte) ((byteRate >> 16) & 0xff);
-        header[31] = (byte) ((byteRate >> 24) & 0xff);
-        // 确定系统一次要处理多少个这样字节的数据，确定缓冲区，通道数*采样位数
-        header[32] = (byte) (1 * 16 / 8);
-        header[33] = 0;
-        //每个样本的数据位数
-        header[34] = 16;
-        header[35] = 0;
-        //Data chunk
-        header[36] = 'd';//data
-        header[37] = 'a';
-        header[38] = 't';
-        header[39] = 'a';
-        header[40] = (byte) (totalAudioLen & 0xff);
-        header[41] = (byte) ((totalAudioLen >> 8) & 0xff);
-        header[42] = (byte) ((totalAudioLen >> 16) & 0xff);
-        header[43] = (byte) ((totalAudioLen >> 24) & 0xff);
+        fillHeader(header, longSampleRate, totalAudioLen, totalDataLen, channels, byteRate);
         return header;
     }
 
+    /**
+     * 16bit 小端 PCM 的均方根幅度（0 ~ 32768），用于判断静音。
+     */
+    public static double rms(byte[] pcm, int offset, int length) {
+        int samples = length / 2;
+        if (samples == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = offset, end = offset + samples * 2; i < end; i += 2) {
+            int sample = (short) ((pcm[i] & 0xff) | (pcm[i + 1] << 8));
+            sum += (long) sample * sample;
+        }
+        return Math.sqrt((double) sum / samples);
+    }
+
     private static void writeWaveFileHeader(FileOutputStream out, long longSampleRate,
                                      long totalAudioLen, long totalDataLen,
                                      int channels, long byteRate) throws IOException {
         byte[] header = new byte[44];
+        fillHeader(header, longSampleRate, totalAudioLen, totalDataLen, channels, byteRate);
+        out.write(header, 0, 44);
+    }
+
+    private static void fillHeader(byte[] header, long longSampleRate, long totalAudioLen, long totalDataLen,
+                                   int channels, long byteRate) {
         header[0] = 'R'; // RIFF
         header[1] = 'I';
         header[2] = 'F';
@@ -138,7 +120,7 @@ public class AudioUtil {
         header[30] = (byte) ((byteRate >> 16) & 0xff);
         header[31] = (byte) ((byteRate >> 24) & 0xff);
         // 确定系统一次要处理多少个这样字节的数据，确定缓冲区，通道数*采样位数
-        header[32] = (byte) (1 * 16 / 8);
+        header[32] = (byte) (channels * 16 / 8);
         header[33] = 0;
         //每个样本的数据位数
         header[34] = 16;
@@ -152,7 +134,6 @@ public class AudioUtil {
         header[41] = (byte) ((totalAudioLen >> 8) & 0xff);
         header[42] = (byte) ((totalAudioLen >> 16) & 0xff);
         header[43] = (byte) ((totalAudioLen >> 24) & 0xff);
-        out.write(header, 0, 44);
     }
 
 
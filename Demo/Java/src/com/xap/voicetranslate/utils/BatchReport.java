@@ -0,0 +1,97 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量翻译的汇总统计，由 {@link BatchTranslator} 在运行中更新，运行结束后返回。
+ * 吞吐按本次运行的墙钟时间计算，不含从清单中跳过的文件。
+ */
+public final class BatchReport {
+    private final int total, skipped;
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong audioMillis = new AtomicLong();//已成功翻译的音频时长
+
+    BatchReport(int total, int skipped) {
+        this.total = total;
+        this.skipped = skipped;
+    }
+
+    void succeeded(long audioMillis) {
+        succeeded.incrementAndGet();
+        this.audioMillis.addAndGet(audioMillis);
+    }
+
+    void failed() {
+        failed.incrementAndGet();
+    }
+
+    void finished() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * 输入文件总数，包括跳过的文件。
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * 清单中已成功、本次跳过的文件数。
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public double getAudioSeconds() {
+        return audioMillis.get() / 1000.0;
+    }
+
+    /**
+     * 本次运行的墙钟时间，运行中时为截至目前的时间。
+     */
+    public long getWallMillis() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 每小时完成的文件数（成功和失败均计入）。
+     */
+    public double getFilesPerHour() {
+        long wall = getWallMillis();
+        return wall == 0 ? 0 : (getSucceeded() + getFailed()) * 3_600_000.0 / wall;
+    }
+
+    /**
+     * 每秒墙钟时间翻译的音频秒数。
+     */
+    public double getAudioSecondsPerWallSecond() {
+        long wall = getWallMillis();
+        return wall == 0 ? 0 : audioMillis.get() / (double) wall;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchReport{total=" + total
+                + ", skipped=" + skipped
+                + ", succeeded=" + getSucceeded()
+                + ", failed=" + getFailed()
+                + ", audio=" + String.format("%.1f", getAudioSeconds()) + "s"
+                + ", wall=" + getWallMillis() + "ms"
+                + ", files/h=" + String.format("%.1f", getFilesPerHour())
+                + ", audio s/wall s=" + String.format("%.2f", getAudioSecondsPerWallSecond())
+                + '}';
+    }
+}
@@ -0,0 +1,461 @@
+package com.xap.voicetranslate.utils;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.xap.voicetranslate.callback.STSException;
+import com.xap.voicetranslate.callback.SessionResult;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 批量翻译目录或列表中的 PCM / WAV 文件，用于离线回灌。
+ * <p>
+ * 最多同时进行 concurrency 个会话，所有待翻译文件放在同一个队列中，哪个会话先结束就由它取下一个文件，
+ * 长文件不会拖住其他会话。上传不按实时速度限速，只受发送队列积压（{@link ComplexSpeech.Builder#maxQueueBytes}）约束；
+ * 超过 3 分钟的文件照常按 {@link ComplexSpeech.Builder#legDuration} 切换连接。
+ * <p>
+ * 每个文件的识别、翻译结果写到 outputDir 下的 {@code <name>.txt}，合成音频按句写到 {@code <name>/} 目录；
+ * 每个文件结束后向清单（JSON Lines）追加一行记录，包括耗时和错误。再次运行时跳过清单中已成功的文件，
+ * 中途崩溃后可直接重新运行续跑。
+ */
+public final class BatchTranslator {
+    private final ComplexSpeech speech;
+    private final String from, to;
+    private final File outputDir;
+    private final File manifest;
+    private final int concurrency;
+    private final int retries;
+    private final boolean writeAudio;
+    private final AudioFormat format;
+
+    private BatchTranslator(Builder builder) {
+        this.speech = builder.speech;
+        this.from = builder.from;
+        this.to = builder.to;
+        this.outputDir = builder.outputDir;
+        this.manifest = builder.manifest != null ? builder.manifest : new File(builder.outputDir, "manifest.jsonl");
+        this.concurrency = builder.concurrency;
+        this.retries = builder.retries;
+        this.writeAudio = builder.writeAudio;
+        this.format = builder.format;
+    }
+
+    /**
+     * 翻译 input 下的全部 .pcm / .wav 文件（含子目录），或 input 列表文件中每行一个的音频路径
+     * （相对路径相对列表文件所在目录，空行和 # 开头的行忽略），阻塞直到全部结束。
+     */
+    public BatchReport run(File input) throws IOException, InterruptedException {
+        return await(start(input));
+    }
+
+    public BatchReport run(List<File> inputs) throws IOException, InterruptedException {
+        return await(start(inputs));
+    }
+
+    public CompletableFuture<BatchReport> start(File input) throws IOException {
+        if (input.isDirectory()) {
+            Path root = input.toPath();
+            try (Stream<Path> files = Files.walk(root)) {
+                List<Path> paths = files.filter(Files::isRegularFile).filter(p -> isAudio(p.toString()))
+                        .sorted().collect(Collectors.toList());
+                List<Item> items = new ArrayList<>(paths.size());
+                for (Path path : paths) {
+                    items.add(new Item(path.toFile(), root.relativize(path).toString()));
+                }
+                return begin(items);
+            }
+        }
+        List<File> inputs = new ArrayList<>();
+        File base = input.getAbsoluteFile().getParentFile();
+        for (String line : Files.readAllLines(input.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            File file = new File(line);
+            inputs.add(file.isAbsolute() ? file : new File(base, line));
+        }
+        return start(inputs);
+    }
+
+    /**
+     * 开始翻译，立即返回；全部文件结束后返回的 future 以汇总统计完成。
+     */
+    public CompletableFuture<BatchReport> start(List<File> inputs) throws IOException {
+        List<Item> items = new ArrayList<>(inputs.size());
+        for (File file : inputs) {
+            items.add(new Item(file, file.getName()));
+        }
+        return begin(items);
+    }
+
+    private CompletableFuture<BatchReport> begin(List<Item> items) throws IOException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("cannot create " + outputDir);
+        }
+        Set<String> done = readManifest();
+        Map<String, Integer> names = new HashMap<>();
+        ConcurrentLinkedQueue<Item> queue = new ConcurrentLinkedQueue<>();
+        for (Item item : items) {
+            Integer n = names.merge(item.name, 1, Integer::sum);
+            if (n > 1) {//同名文件加序号区分
+                item.name += "-" + n;
+            }
+            if (!done.contains(item.file.getAbsolutePath())) {
+                queue.add(item);
+            }
+        }
+        Writer writer = Files.newBufferedWriter(manifest.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (!endsWithNewline()) {//上次崩溃时写了一半的行单独成行，不影响新记录
+            writer.write('\n');
+        }
+        Run run = new Run(queue, new BatchReport(items.size(), items.size() - queue.size()), writer);
+        LogUtils.i("batch start {}", run.report);
+        int lanes = Math.min(concurrency, queue.size());
+        if (lanes == 0) {
+            run.finish();
+        }
+        run.lanes.set(lanes);
+        for (int i = 0; i < lanes; i++) {
+            run.next();
+        }
+        return run.result;
+    }
+
+    private static BatchReport await(CompletableFuture<BatchReport> result) throws IOException, InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * 读取清单中最后一条记录为成功的输入文件，损坏的行（如崩溃时写了一半）忽略。
+     */
+    private Set<String> readManifest() throws IOException {
+        Set<String> done = new HashSet<>();
+        if (!manifest.isFile()) {
+            return done;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JSONObject record;
+                try {
+                    record = JSON.parseObject(line);
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                String input = record == null ? null : record.getString("input");
+                if (input == null) {
+                    continue;
+                } else if ("ok".equals(record.getString("status"))) {
+                    done.add(input);
+                } else {
+                    done.remove(input);
+                }
+            }
+        }
+        return done;
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(manifest, "r")) {
+            if (file.length() == 0) {
+                return true;
+            }
+            file.seek(file.length() - 1);
+            return file.read() == '\n';
+        }
+    }
+
+    private static boolean isAudio(String path) {
+        String name = path.toLowerCase(Locale.ROOT);
+        return name.endsWith(".pcm") || name.endsWith(".wav");
+    }
+
+    /**
+     * 按文件头（WAV）或文件大小（PCM）计算音频时长。
+     */
+    private long audioMillis(File file) throws IOException {
+        AudioFormat header = FileAudioSource.readHeader(file.getPath());
+        AudioFormat f = header != null ? header : format != null ? format : AudioFormat.DEFAULT;
+        long bytes = header != null && header.getDataLength() >= 0 ? header.getDataLength()
+                : file.length() - (header != null ? 44 : 0);
+        return bytes * 1000 / ((long) f.getSampleRate() * f.getFrameBytes());
+    }
+
+    private static final class Item {
+        final File file;
+        String name;//输出文件名，不含扩展名
+        int attempts;
+
+        Item(File file, String relativePath) {
+            this.file = file;
+            int dot = relativePath.lastIndexOf('.');
+            this.name = (dot > 0 ? relativePath.substring(0, dot) : relativePath).replace(File.separatorChar, '_');
+        }
+    }
+
+    /**
+     * 一次运行的状态。每个并发名额对应一条处理链：会话结束时在回调线程上记录结果并取下一个文件。
+     */
+    private final class Run {
+        final ConcurrentLinkedQueue<Item> queue;
+        final BatchReport report;
+        final Writer writer;//由 this 保护
+        final AtomicInteger lanes = new AtomicInteger();
+        final CompletableFuture<BatchReport> result = new CompletableFuture<>();
+
+        Run(ConcurrentLinkedQueue<Item> queue, BatchReport report, Writer writer) {
+            this.queue = queue;
+            this.report = report;
+            this.writer = writer;
+        }
+
+        /**
+         * 取下一个文件开始翻译；文件立即失败（如参数错误）时继续取，队列为空时结束该处理链。
+         */
+        void next() {
+            Item item;
+            while ((item = queue.poll()) != null) {
+                long startNanos = System.nanoTime();
+                CompletableFuture<SessionResult> future = translate(item);
+                if (!future.isDone()) {
+                    Item current = item;
+                    future.whenComplete((r, t) -> {
+                        complete(current, r, t, startNanos);
+                        next();
+                    });
+                    return;
+                }
+                SessionResult r = null;
+                Throwable t = null;
+                try {
+                    r = future.join();
+                } catch (CompletionException | CancellationException e) {
+                    t = e;
+                }
+                complete(item, r, t, startNanos);
+            }
+            if (lanes.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+
+        private CompletableFuture<SessionResult> translate(Item item) {
+            item.attempts++;
+            String voiceDir = null;
+            if (writeAudio) {
+                File dir = new File(outputDir, item.name);
+                File[] old = dir.listFiles((d, n) -> n.endsWith(".wav"));
+                if (old != null) {//清理上次中断留下的音频
+                    for (File f : old) {
+                        f.delete();
+                    }
+                }
+                voiceDir = dir.getPath() + File.separator;
+            }
+            ResultCollector collector = new ResultCollector();
+            speech.startFile(from, to, item.file.getPath(), format, speech.sampleRate(), voiceDir, collector, true);
+            return collector.result();
+        }
+
+        /**
+         * 记录一个文件的结果，连接失败且未超过重试次数时放回队尾，由空闲的处理链重试。
+         */
+        private void complete(Item item, SessionResult result, Throwable error, long startNanos) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            int code = cause instanceof STSException ? ((STSException) cause).getErrorCode() : 30003;
+            if (cause != null && code == 30001 && item.attempts <= retries) {
+                LogUtils.w("retry {}", item.file, cause);
+                queue.add(item);
+                return;
+            }
+            JSONObject record = new JSONObject(true);
+            record.put("input", item.file.getAbsolutePath());
+            record.put("name", item.name);
+            record.put("attempts", item.attempts);
+            record.put("elapsedMs", (System.nanoTime() - startNanos) / 1_000_000);
+            if (cause == null) {
+                try {
+                    long audio = audioMillis(item.file);
+                    File transcript = new File(outputDir, item.name + ".txt");
+                    writeTranscript(transcript, result);
+                    record.put("status", "ok");
+                    record.put("audioMs", audio);
+                    record.put("sentences", result.getTranslations().size());
+                    record.put("transcript", transcript.getPath());
+                    report.succeeded(audio);
+                } catch (IOException e) {
+                    cause = e;
+                }
+            }
+            if (cause != null) {
+                record.put("status", "failed");
+                record.put("code", code);
+                record.put("error", String.valueOf(cause.getMessage()));
+                report.failed();
+            }
+            record.put("finishedAt", System.currentTimeMillis());
+            write(record);
+        }
+
+        private void writeTranscript(File file, SessionResult result) throws IOException {
+            List<String> origins = result.getRecognitions(), translations = result.getTranslations();
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < Math.max(origins.size(), translations.size()); i++) {
+                lines.add(i < origins.size() ? origins.get(i) : "");
+                lines.add(i < translations.size() ? translations.get(i) : "");
+                lines.add("");
+            }
+            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        }
+
+        private void write(JSONObject record) {
+            synchronized (this) {
+                try {
+                    writer.write(record.toJSONString());
+                    writer.write('\n');
+                    writer.flush();//每条记录落盘，崩溃后可续跑
+                } catch (IOException e) {
+                    LogUtils.e("write manifest failed", e);
+                }
+            }
+        }
+
+        void finish() {
+            report.finished();
+            JSONObject summary = new JSONObject(true);
+            summary.put("summary", JSON.toJSON(report));
+            write(summary);
+            synchronized (this) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    LogUtils.w("close manifest failed", e);
+                }
+            }
+            LogUtils.i("batch done {}", report);
+            result.complete(report);
+        }
+    }
+
+    public static class Builder {
+        private final ComplexSpeech speech;
+        private String from, to;
+        private File outputDir;
+        private File manifest;
+        private int concurrency = 32;
+        private int retries = 1;
+        private boolean writeAudio = true;
+        private AudioFormat format;
+
+        /**
+         * @param speech 用于翻译的客户端，其 maxConnections 应不小于 concurrency 的两倍（切换连接时会预建下一段连接）
+         */
+        public Builder(ComplexSpeech speech) {
+            if (speech == null) {
+                throw new IllegalArgumentException("speech is null");
+            }
+            this.speech = speech;
+        }
+
+        public Builder languages(String from, String to) {
+            if (TextUtils.isEmpty(from) || TextUtils.isEmpty(to)) {
+                throw new IllegalArgumentException("from or to is empty");
+            }
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        /**
+         * 识别和翻译结果、合成音频的输出目录，清单默认也放在该目录下。
+         */
+        public Builder outputDir(File dir) {
+            this.outputDir = dir;
+            return this;
+        }
+
+        /**
+         * 清单文件，默认为 outputDir 下的 manifest.jsonl。
+         */
+        public Builder manifest(File manifest) {
+            this.manifest = manifest;
+            return this;
+        }
+
+        /**
+         * 同时进行的会话数，默认 32。
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency < 1");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * 连接失败（30001）时重试的次数，默认 1；其他错误不重试。
+         */
+        public Builder retries(int retries) {
+            if (retries < 0) {
+                throw new IllegalArgumentException("retries < 0");
+            }
+            this.retries = retries;
+            return this;
+        }
+
+        /**
+         * 是否写出合成音频，默认 true。
+         */
+        public Builder writeAudio(boolean writeAudio) {
+            this.writeAudio = writeAudio;
+            return this;
+        }
+
+        /**
+         * 非 WAV 文件的格式，默认 {@link AudioFormat#DEFAULT}；WAV 文件总是按文件头读取。
+         */
+        public Builder format(AudioFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        public BatchTranslator build() {
+            if (from == null || outputDir == null) {
+                throw new IllegalStateException("languages and outputDir are required");
+            }
+            return new BatchTranslator(this);
+        }
+    }
+}
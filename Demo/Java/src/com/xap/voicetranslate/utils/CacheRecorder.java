@@ -0,0 +1,139 @@
+package com.xap.voicetranslate.utils;
+
+import com.xap.voicetranslate.callback.AudioChunk;
+import com.xap.voicetranslate.callback.AudioSegment;
+import com.xap.voicetranslate.callback.STSCallback;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 开启结果缓存的会话的回调包装：把回调转交给调用方，同时记录最终结果，会话未报错且没有丢失音频时写入 {@link ResultCache}。
+ * 在 {@link #record} 之前（如回放缓存时）只转交不记录。回调都在会话的回调线程上串行执行。
+ */
+final class CacheRecorder implements STSCallback {
+    private final ResultCache cache;
+    private final STSCallback target;
+
+    private volatile String key;//会话线程写入，回调线程读取
+    private volatile int sampleRate;
+
+    //以下只在回调线程访问
+    private List<CachedResult.Event> events = new ArrayList<>();
+    private final ArrayDeque<byte[]> finished = new ArrayDeque<>();//已结束、尚未配对翻译的句子音频
+    private final ByteArrayOutputStream current = new ByteArrayOutputStream();
+    private final byte[] copy = new byte[4096];
+    private long bytes;
+
+    CacheRecorder(ResultCache cache, STSCallback target) {
+        this.cache = cache;
+        this.target = target;
+    }
+
+    /**
+     * 缓存未命中，开始记录结果。在连接前调用。
+     */
+    void record(String key, int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.key = key;
+    }
+
+    private boolean recording() {
+        return key != null && events != null;
+    }
+
+    /**
+     * 出错或结果过大时放弃记录。
+     */
+    private void discard() {
+        events = null;
+        finished.clear();
+        current.reset();
+    }
+
+    private void add(byte type, String text, byte[] audio) {
+        events.add(new CachedResult.Event(type, text, audio));
+        bytes += (text != null ? text.length() * 2L : 0) + (audio != null ? audio.length : 0);
+        if (bytes > cache.maxEntryBytes()) {
+            discard();
+        }
+    }
+
+    @Override
+    public void onRecognizeSuccess(boolean isFinal, String recognizeResult) {
+        if (isFinal && recording()) {
+            add(CachedResult.ORIGIN, recognizeResult, null);
+        }
+        target.onRecognizeSuccess(isFinal, recognizeResult);
+    }
+
+    @Override
+    public void onTranslateSuccess(boolean isFinal, String translateResult) {
+        if (isFinal && recording()) {
+            add(CachedResult.TRANSLATION, translateResult, null);
+        }
+        target.onTranslateSuccess(isFinal, translateResult);
+    }
+
+    @Override
+    public void onAudio(AudioChunk chunk) {
+        if (recording()) {//调用方可能移动 position 或立即归还缓冲区，先复制
+            ByteBuffer buffer = chunk.buffer().duplicate();
+            while (buffer.hasRemaining()) {
+                int len = Math.min(copy.length, buffer.remaining());
+                buffer.get(copy, 0, len);
+                current.write(copy, 0, len);
+            }
+            if (bytes + current.size() > cache.maxEntryBytes()) {
+                discard();
+            }
+        }
+        target.onAudio(chunk);
+    }
+
+    @Override
+    public void onFinish(String voicePath) {
+        if (recording()) {
+            finished.add(current.toByteArray());
+            current.reset();
+        }
+        target.onFinish(voicePath);
+    }
+
+    @Override
+    public void onSegment(AudioSegment segment) {
+        if (recording()) {
+            byte[] audio = finished.poll();
+            add(CachedResult.SEGMENT, segment.getTranslation(), audio != null ? audio : new byte[0]);
+        }
+        target.onSegment(segment);
+    }
+
+    @Override
+    public void onAudioLost(long lostMillis) {
+        discard();//结果不完整，不写缓存
+        target.onAudioLost(lostMillis);
+    }
+
+    @Override
+    public void onOpen() {
+        target.onOpen();
+    }
+
+    @Override
+    public void onError(int errorCode, String error) {
+        discard();
+        target.onError(errorCode, error);
+    }
+
+    @Override
+    public void onComplete() {
+        target.onComplete();
+        if (recording()) {//调用方先收到结果，再写缓存
+            cache.put(key, new CachedResult(sampleRate, events));
+            discard();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次会话的最终结果，按回调顺序保存最终识别、最终翻译和逐句合成音频，不可变。
+ */
+final class CachedResult {
+    static final byte ORIGIN = 0;
+    static final byte TRANSLATION = 1;
+    static final byte SEGMENT = 2;//一句合成音频及其翻译文本
+
+    private static final int MAGIC = 0x58524331;//"XRC1"
+    private static final int EVENT_OVERHEAD = 64;//估算内存占用时每个事件的对象开销
+
+    static final class Event {
+        final byte type;
+        final String text;//SEGMENT 没有对应翻译时为 null
+        final byte[] audio;//16bit 单声道 PCM，仅 SEGMENT 有
+
+        Event(byte type, String text, byte[] audio) {
+            this.type = type;
+            this.text = text;
+            this.audio = audio;
+        }
+    }
+
+    private final int sampleRate;
+    private final List<Event> events;
+    private final long size;
+
+    CachedResult(int sampleRate, List<Event> events) {
+        this.sampleRate = sampleRate;
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+        long bytes = 0;
+        for (Event event : events) {
+            bytes += EVENT_OVERHEAD;
+            if (event.text != null) {
+                bytes += event.text.length() * 2L;
+            }
+            if (event.audio != null) {
+                bytes += event.audio.length;
+            }
+        }
+        this.size = bytes;
+    }
+
+    int getSampleRate() {
+        return sampleRate;
+    }
+
+    List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * 估算的内存占用字节数。
+     */
+    long size() {
+        return size;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(sampleRate);
+        out.writeInt(events.size());
+        for (Event event : events) {
+            out.writeByte(event.type);
+            writeBytes(out, event.text == null ? null : event.text.getBytes(StandardCharsets.UTF_8));
+            writeBytes(out, event.audio);
+        }
+    }
+
+    static CachedResult readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a cache entry!");
+        }
+        int sampleRate = in.readInt();
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Cache entry corrupted!");
+        }
+        List<Event> events = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            byte type = in.readByte();
+            byte[] text = readBytes(in);
+            events.add(new Event(type, text == null ? null : new String(text, StandardCharsets.UTF_8), readBytes(in)));
+        }
+        return new CachedResult(sampleRate, events);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] data) throws IOException {
+        if (data == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < -1) {
+            throw new IOException("Cache entry corrupted!");
+        } else if (length == -1) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+}
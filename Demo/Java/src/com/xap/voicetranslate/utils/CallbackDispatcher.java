@@ -0,0 +1,210 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 单个会话的回调分发：事件按提交顺序排队，在回调线程池上依次执行，同一会话的回调不会并发。
+ * 读线程只做入队，耗时与回调的执行时间无关；队列写满时按 {@link OverflowPolicy} 处理。
+ * 不可丢弃的事件（最终结果、音频、错误等）在 DROP_PARTIALS、COALESCE_PARTIALS 下允许超出容量。
+ */
+final class CallbackDispatcher implements Runnable {
+    static final int PARTIAL_ORIGIN = 0;
+    static final int PARTIAL_TRANSLATION = 1;
+    static final int OTHER = 2;
+    private static final int BATCH = 64;//每次最多连续执行的回调数，避免长队列占住线程
+
+    /**
+     * 一个回调事件。合并中间结果时直接替换排队中事件的 task。
+     */
+    static final class Event {
+        final int kind;
+        Runnable task;
+
+        Event(int kind, Runnable task) {
+            this.kind = kind;
+            this.task = task;
+        }
+    }
+
+    private final Executor executor;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final SessionMetrics metrics;
+
+    //以下由 this 保护
+    private final ArrayDeque<Event> queue = new ArrayDeque<>();
+    private final Event[] lastPartial = new Event[2];//排队中最新的中间结果，可被合并
+    private boolean scheduled;
+    private boolean shutdown;//不再接受新事件，已排队的继续执行
+    private Thread runner;//正在执行回调的线程
+    private Runnable onDrained;//队列执行完毕后执行一次，见 whenDrained
+
+    CallbackDispatcher(Executor executor, int capacity, OverflowPolicy policy, SessionMetrics metrics) {
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.metrics = metrics;
+    }
+
+    void post(int kind, Runnable task) {
+        post(new Event(kind, task));
+    }
+
+    void post(Event event) {
+        boolean schedule;
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            boolean partial = event.kind != OTHER;
+            if (partial && policy == OverflowPolicy.COALESCE_PARTIALS && lastPartial[event.kind] != null) {
+                lastPartial[event.kind].task = event.task;
+                dropped();
+                return;
+            }
+            if (queue.size() >= capacity) {
+                if (policy == OverflowPolicy.BLOCK) {
+                    if (!awaitSpace()) {
+                        return;
+                    }
+                } else if (partial) {
+                    dropped();
+                    return;
+                }
+            }
+            queue.add(event);
+            if (partial) {
+                lastPartial[event.kind] = event;
+            } else {
+                lastPartial[PARTIAL_ORIGIN] = lastPartial[PARTIAL_TRANSLATION] = null;//不能越过之后的事件合并
+            }
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    /**
+     * 等待队列有空位，持有 this。回调线程自己提交事件时不等待，避免自锁。
+     *
+     * @return false 表示等待期间已关闭
+     */
+    private boolean awaitSpace() {
+        boolean interrupted = false;
+        while (queue.size() >= capacity && !shutdown && runner != Thread.currentThread()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return !shutdown;
+    }
+
+    private void dropped() {
+        if (metrics != null) {
+            metrics.callbackDropped();
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            LogUtils.w("callback rejected", e);
+            Runnable drained;
+            synchronized (this) {
+                scheduled = false;
+                queue.clear();
+                notifyAll();
+                drained = takeDrained();
+            }
+            runDrained(drained);
+        }
+    }
+
+    /**
+     * 已排队的回调全部执行完毕（或被丢弃）后执行 action，当前没有待执行的回调时立即执行。只保留最后一次设置的 action。
+     */
+    void whenDrained(Runnable action) {
+        synchronized (this) {
+            if (scheduled) {
+                onDrained = action;
+                return;
+            }
+        }
+        action.run();
+    }
+
+    private Runnable takeDrained() {//持有 this
+        Runnable drained = onDrained;
+        onDrained = null;
+        return drained;
+    }
+
+    private static void runDrained(Runnable drained) {
+        if (drained != null) {
+            drained.run();
+        }
+    }
+
+    @Override
+    public void run() {
+        for (int i = 0; i < BATCH; i++) {
+            Event event;
+            Runnable drained = null;
+            synchronized (this) {
+                event = queue.poll();
+                if (event == null) {
+                    scheduled = false;
+                    runner = null;
+                    drained = takeDrained();
+                } else {
+                    if (lastPartial[PARTIAL_ORIGIN] == event || lastPartial[PARTIAL_TRANSLATION] == event) {
+                        lastPartial[event.kind] = null;
+                    }
+                    runner = Thread.currentThread();
+                    notifyAll();
+                }
+            }
+            if (event == null) {
+                runDrained(drained);
+                return;
+            }
+            try {
+                event.task.run();
+            } catch (RuntimeException e) {
+                LogUtils.w("callback failed", e);
+            }
+        }
+        synchronized (this) {
+            runner = null;
+        }
+        schedule();//剩余事件交给下一个任务，让出线程给其他会话
+    }
+
+    /**
+     * 不再接受新事件，已排队的回调继续执行。
+     */
+    synchronized void shutdown() {
+        shutdown = true;
+        notifyAll();
+    }
+
+    /**
+     * 不再接受新事件并丢弃尚未执行的回调。
+     */
+    synchronized void cancel() {
+        shutdown = true;
+        queue.clear();
+        lastPartial[PARTIAL_ORIGIN] = lastPartial[PARTIAL_TRANSLATION] = null;
+        notifyAll();
+    }
+}
@@ -0,0 +1,166 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 客户端级别的汇总指标，由该 {@link ComplexSpeech} 的所有会话累加。
+ * 计数实时更新；平均耗时在会话结束时累加，只统计发生了对应事件的会话。
+ */
+public final class ClientMetrics implements ClientMetricsMBean {
+    private final LongAdder started = new LongAdder();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder framesQueued = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder suppressedBytes = new LongAdder();
+    private final LongAdder droppedCallbacks = new LongAdder();
+
+    private final Average connect = new Average();
+    private final Average firstOrigin = new Average();
+    private final Average firstTranslation = new Average();
+    private final Average firstAudio = new Average();
+    private final Average firstFlush = new Average();
+
+    ClientMetrics() {
+    }
+
+    void sessionStarted() {
+        started.increment();
+        active.incrementAndGet();
+    }
+
+    void sent(int bytes) {
+        bytesSent.add(bytes);
+        framesQueued.increment();
+    }
+
+    void sendFailed() {
+        sendFailures.increment();
+    }
+
+    void suppressed(int bytes) {
+        suppressedBytes.add(bytes);
+    }
+
+    void callbackDropped() {
+        droppedCallbacks.increment();
+    }
+
+    void received(int bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    void sessionEnded(SessionMetrics session) {
+        active.decrementAndGet();
+        if (session.getErrorCode() != 0) {
+            failed.increment();
+        } else {
+            completed.increment();
+        }
+        connect.add(session.connectNanos(), session.openNanos());
+        long firstSend = session.firstSendNanos();
+        firstOrigin.add(firstSend, session.firstOriginNanos());
+        firstTranslation.add(firstSend, session.firstTranslationNanos());
+        firstAudio.add(firstSend, session.firstAudioNanos());
+        firstFlush.add(firstSend, session.firstFlushNanos());
+    }
+
+    @Override
+    public long getStartedSessions() {
+        return started.sum();
+    }
+
+    @Override
+    public int getActiveSessions() {
+        return active.get();
+    }
+
+    /**
+     * 未报错结束（含取消）的会话数。
+     */
+    @Override
+    public long getCompletedSessions() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getFailedSessions() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getFramesQueued() {
+        return framesQueued.sum();
+    }
+
+    @Override
+    public long getSendFailures() {
+        return sendFailures.sum();
+    }
+
+    @Override
+    public long getSuppressedBytes() {
+        return suppressedBytes.sum();
+    }
+
+    @Override
+    public long getDroppedCallbacks() {
+        return droppedCallbacks.sum();
+    }
+
+    @Override
+    public double getAverageConnectMillis() {
+        return connect.millis();
+    }
+
+    @Override
+    public double getAverageFirstOriginMillis() {
+        return firstOrigin.millis();
+    }
+
+    @Override
+    public double getAverageFirstTranslationMillis() {
+        return firstTranslation.millis();
+    }
+
+    @Override
+    public double getAverageFirstAudioMillis() {
+        return firstAudio.millis();
+    }
+
+    @Override
+    public double getAverageFirstFlushMillis() {
+        return firstFlush.millis();
+    }
+
+    private static final class Average {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void add(long from, long to) {
+            if (from != 0 && to != 0) {
+                count.increment();
+                nanos.add(to - from);
+            }
+        }
+
+        double millis() {
+            long n = count.sum();
+            return n == 0 ? -1 : nanos.sum() / 1e6 / n;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.xap.voicetranslate.utils;
+
+/**
+ * {@link ClientMetrics} 的 JMX 接口，开启 {@link ComplexSpeech.Builder#jmx(boolean)} 后注册到平台 MBeanServer，
+ * ObjectName 为 {@code com.xap.voicetranslate:type=ComplexSpeech,id=N}。
+ */
+public interface ClientMetricsMBean {
+    long getStartedSessions();
+
+    int getActiveSessions();
+
+    long getCompletedSessions();
+
+    long getFailedSessions();
+
+    long getBytesSent();
+
+    long getBytesReceived();
+
+    long getFramesQueued();
+
+    long getSendFailures();
+
+    long getSuppressedBytes();
+
+    long getDroppedCallbacks();
+
+    double getAverageConnectMillis();
+
+    double getAverageFirstOriginMillis();
+
+    double getAverageFirstTranslationMillis();
+
+    double getAverageFirstAudioMillis();
+
+    double getAverageFirstFlushMillis();
+}
@@ -1,286 +1,905 @@
 package com.xap.voicetranslate.utils;
 
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
 import com.xap.voicetranslate.Constant;
+import com.xap.voicetranslate.callback.MetricsListener;
 import com.xap.voicetranslate.callback.STSCallback;
+import com.xap.voicetranslate.callback.SessionResult;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
-import java.util.Base64;
-import java.util.Random;
-import java.util.concurrent.locks.ReentrantLock;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
-import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
-import okio.ByteString;
 
-public class ComplexSpeech {
+/**
+ * 语音翻译客户端。一个实例内的所有会话共享同一个 {@link OkHttpClient}（线程池、连接池、TLS 上下文），
+ * 建议整个进程复用一个实例，不再使用时调用 {@link #close()}。
+ */
+public class ComplexSpeech implements Closeable {
+    /**
+     * {@link Builder#sampleRate(int)} 或会话的 rate 参数取该值时按输入音频的采样率上传，不做重采样。
+     */
+    public static final int INPUT_RATE = 0;
+    private static final int MIN_RATE = 8000, MAX_RATE = 55000;//服务端支持的采样率范围
 
-    //static
-    private static volatile int currentConversation;
+    private static final AtomicInteger instanceIds = new AtomicInteger();
 
-    //sts
-    private String fromLanguage = "";
-    private String toLanguage = "";
-    private String recordFile, voiceFile;
+    //sessions
+    private final AtomicInteger sessionIds = new AtomicInteger();
+    //保活：会话线程均为守护线程（或虚拟线程），有会话进行时保留一个非守护线程，避免 main 返回后进程直接退出
+    private final Object keepAliveLock = new Object();
+    private int liveSessions;//由 keepAliveLock 保护
+    private Thread keepAlive;//由 keepAliveLock 保护
 
-    //callbacks
-    private STSCallback stsCallback;
+    //http
+    private final OkHttpClient client;
+    private final boolean ownsClient;
+    private volatile boolean closed;
 
-    //lock
-    private final ReentrantLock conversationLock = new ReentrantLock(true);
+    //language
+    private final LanguageRegistry languages = LanguageRegistry.getDefault();
+    private final boolean validateLanguages;
 
-    //common
-    private Random random;
+    //account
+    private final String wssUrl;
+    private final CredentialPool credentials;
+
+    //upload
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final int frameMillis;
+    private final double realTimeFactor;
+    private final long maxQueueBytes;
+    private final int inputBufferBytes;
+    private final int minLegSeconds, maxLegSeconds;
+    private final int silenceKeepMillis;
+    private final double silenceThreshold;
+    private final int sampleRate;
+
+    //session，建立连接和执行回调
+    private final Executor executor;
+    //input，每个输入流会话占用一个线程阻塞读取，不占用 executor
+    private final Executor inputExecutor = SessionExecutors.newInputExecutor("xap-input");
+
+    //callback
+    private final int callbackQueueSize;
+    private final OverflowPolicy overflowPolicy;
+
+    //audio
+    private final AudioBufferPool audioPool;
+
+    //result cache，未开启时为 null
+    private final ResultCache resultCache;
+
+    //warm pool，未开启时为 null
+    private final WarmConnectionPool warmPool;
+
+    //metrics，未开启时为 null
+    private final ClientMetrics metrics;
+    private final MetricsListener metricsListener;
+    private final ObjectName objectName;
+    private final ObjectName cacheObjectName;
 
     public ComplexSpeech() {
-        random = new Random(40);
+        this(new Builder());
     }
 
-    public void startSTS(String sourceLan, String targetLan, String voicePath, String outputPath, STSCallback stsCallback) {
-        int conversation = random.nextInt(10000);
-        conversationLock.lock();
-        currentConversation = conversation;//多线程处理
-        conversationLock.unlock();
-        LogUtils.d("startSTS"+conversation);
-        if (stsCallback == null){
+    private ComplexSpeech(Builder builder) {
+        if (builder.client != null) {
+            client = builder.client;
+            ownsClient = false;
+        } else {
+            Dispatcher dispatcher = new Dispatcher();
+            //OkHttp 的 WebSocket 读循环会一直占用 dispatcher 的请求名额，默认每个 host 仅 5 个
+            dispatcher.setMaxRequests(builder.maxRequests);
+            dispatcher.setMaxRequestsPerHost(builder.maxRequestsPerHost);
+            client = new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .pingInterval(builder.pingIntervalMillis, TimeUnit.MILLISECONDS)
+                    .connectTimeout(builder.connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .readTimeout(builder.readTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .writeTimeout(builder.writeTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .build();
+            ownsClient = true;
+        }
+        wssUrl = builder.wssUrl;
+        validateLanguages = builder.validateLanguages;
+        AtomicInteger threadIds = new AtomicInteger();
+        scheduler = new ScheduledThreadPoolExecutor(builder.uploadThreads, r -> {
+            Thread t = new Thread(r, "xap-upload-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduler.setContinueExistingPeriodicTasksAfterShutdownPolicy(true);//close() 后已开始的上传继续完成
+        credentials = new CredentialPool(builder.credentials.isEmpty()
+                ? Collections.singletonList(new Credential(builder.appId, builder.appSecret))
+                : builder.credentials, scheduler);
+        frameMillis = builder.frameMillis;
+        realTimeFactor = builder.realTimeFactor;
+        maxQueueBytes = builder.maxQueueBytes;
+        inputBufferBytes = builder.inputBufferBytes;
+        minLegSeconds = builder.minLegSeconds;
+        maxLegSeconds = builder.maxLegSeconds;
+        silenceKeepMillis = builder.silenceKeepMillis;
+        silenceThreshold = builder.silenceThreshold;
+        sampleRate = builder.sampleRate;
+        //未指定时 JDK 21+ 使用虚拟线程，低版本使用有界线程池；不随 close() 关闭，线程空闲后自动回收
+        executor = builder.executor != null ? builder.executor
+                : SessionExecutors.newExecutor("xap-session", builder.maxSessionThreads);
+        callbackQueueSize = builder.callbackQueueSize;
+        overflowPolicy = builder.overflowPolicy;
+        audioPool = new AudioBufferPool(64 * 1024, builder.maxPooledAudioBuffers);
+        resultCache = builder.resultCache;
+        metricsListener = builder.metricsListener != null ? builder.metricsListener : new MetricsListener() {};
+        metrics = builder.metricsListener != null || builder.jmx ? new ClientMetrics() : null;
+        int instanceId = instanceIds.incrementAndGet();
+        objectName = builder.jmx ? registerMBean(metrics, "ComplexSpeech", instanceId) : null;
+        cacheObjectName = builder.jmx && resultCache != null ? registerMBean(resultCache, "ResultCache", instanceId) : null;
+        if (builder.warmConnections > 0) {
+            warmPool = new WarmConnectionPool(this, builder.warmConnections, builder.maxWarmConnections,
+                    builder.warmIdleTimeoutMillis);
+            warmPool.start(scheduler);
+        } else {
+            warmPool = null;
+        }
+    }
+
+    private static ObjectName registerMBean(Object mbean, String type, int id) {
+        try {
+            ObjectName name = new ObjectName("com.xap.voicetranslate:type=" + type + ",id=" + id);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+            return name;
+        } catch (JMException e) {
+            LogUtils.w("register mbean failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * 客户端汇总指标，未通过 {@link Builder#metrics} 或 {@link Builder#jmx} 开启时为 null。
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    SessionMetrics newSessionMetrics(int sessionId) {
+        return metrics != null ? new SessionMetrics(sessionId, metrics) : null;
+    }
+
+    MetricsListener metricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * 为该语言对预先建立 {@link Builder#warmConnections} 个连接，之后的会话可直接取用；
+     * 1 分钟内没有该语言对的会话时不再保持。未开启预建连接时不做任何操作。
+     */
+    public void warmUp(String sourceLan, String targetLan) {
+        warmUp(sourceLan, targetLan, uploadRate(sampleRate, AudioFormat.DEFAULT));
+    }
+
+    /**
+     * 按指定的上传采样率预先建立连接，用于 {@link Builder#sampleRate(int)} 为 {@link #INPUT_RATE}
+     * 或会话单独指定采样率的场景。
+     */
+    public void warmUp(String sourceLan, String targetLan, int rate) {
+        if (warmPool != null && !closed && !TextUtils.isEmpty(sourceLan) && !TextUtils.isEmpty(targetLan)
+                && (!validateLanguages || languages.validate(sourceLan, targetLan) == null)) {
+            warmPool.warmUp(languageCode(sourceLan), languageCode(targetLan), rate);
+        }
+    }
+
+    WebSocket claimWarmConnection(String from, String to, int rate, WebSocketListener listener) {
+        return warmPool != null ? warmPool.claim(from, to, rate, listener) : null;
+    }
+
+    /**
+     * 会话的上传采样率：rate 为 {@link #INPUT_RATE} 时按输入音频的采样率，超出服务端支持的范围时重采样到边界值。
+     */
+    static int uploadRate(int rate, AudioFormat format) {
+        if (rate != INPUT_RATE) {
+            return rate;
+        }
+        return Math.max(MIN_RATE, Math.min(MAX_RATE, format.getSampleRate()));
+    }
+
+    /**
+     * {@link Builder#sampleRate(int)} 配置的默认上传采样率。
+     */
+    int sampleRate() {
+        return sampleRate;
+    }
+
+    CallbackDispatcher newDispatcher(SessionMetrics metrics) {
+        return new CallbackDispatcher(executor, callbackQueueSize, overflowPolicy, metrics);
+    }
+
+    OkHttpClient client() {
+        return client;
+    }
+
+    AudioBufferPool audioPool() {
+        return audioPool;
+    }
+
+    ResultCache resultCache() {
+        return resultCache;
+    }
+
+    ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * 按配置包装会话的音频来源：格式与上传格式不一致时先转换，再做静音过滤。
+     */
+    AudioSource newSource(AudioSource source, AudioFormat format, int rate, SessionMetrics metrics) {
+        if (!format.isUploadFormat(rate)) {
+            source = new FormatConverter(source, format, rate);
+        }
+        if (silenceKeepMillis <= 0) {
+            return source;
+        }
+        return new SilenceFilter(source, rate, silenceKeepMillis, silenceThreshold, metrics);
+    }
+
+    AudioUploader newUploader(STSSession session, STSSession.Leg leg, WebSocket webSocket, AudioSource source,
+                              boolean unpaced) {
+        return new AudioUploader(session, leg, webSocket, source, session.getSampleRate(), frameMillis,
+                unpaced ? 0 : realTimeFactor, maxQueueBytes, minLegSeconds, maxLegSeconds, silenceThreshold);
+    }
+
+    /**
+     * 关闭客户端：不再接受新会话，已建立的会话继续运行直到结束，保活线程在最后一个会话结束后退出。
+     * 通过 {@link Builder#client(OkHttpClient)} 传入的外部 client 不会被关闭。
+     */
+    @Override
+    public void close() {
+        if (closed) {
             return;
-        } else if ((TextUtils.isEmpty(targetLan) || TextUtils.isEmpty(sourceLan)) || TextUtils.isEmpty(voicePath)) {
+        }
+        closed = true;
+        if (warmPool != null) {
+            warmPool.close();
+        }
+        scheduler.shutdown();
+        if (ownsClient) {
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+        }
+        for (ObjectName name : new ObjectName[]{objectName, cacheObjectName}) {
+            if (name != null) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+                } catch (JMException e) {
+                    LogUtils.w("unregister mbean failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 开启一个新的翻译会话。每次调用都会创建独立的 {@link STSSession}，多个会话可以并发运行，
+     * 互不取消；需要中止时调用返回句柄的 {@link STSSession#cancel()}。
+     * outputPath 为空时不写文件，合成音频只通过 {@link STSCallback#onAudio} 回调。
+     * WAV 文件按文件头的格式读取，其他文件视为 {@link AudioFormat#DEFAULT} 格式的 PCM。
+     *
+     * @return 会话句柄，参数不合法时返回 null
+     */
+    public STSSession startSTS(String sourceLan, String targetLan, String voicePath, String outputPath, STSCallback stsCallback) {
+        return startSTS(sourceLan, targetLan, voicePath, null, outputPath, stsCallback);
+    }
+
+    /**
+     * 翻译指定格式的 PCM 文件，如 8K 电话录音。
+     */
+    public STSSession startSTS(String sourceLan, String targetLan, String voicePath, AudioFormat format,
+                               String outputPath, STSCallback stsCallback) {
+        return startSTS(sourceLan, targetLan, voicePath, format, sampleRate, outputPath, stsCallback);
+    }
+
+    /**
+     * 以指定的上传采样率翻译音频文件，format 为 null 时与 {@link #startSTS(String, String, String, String, STSCallback)} 相同。
+     *
+     * @param rate 本会话上传和合成音频的采样率，取值同 {@link Builder#sampleRate(int)}；其他重载使用 Builder 中配置的值
+     */
+    public STSSession startSTS(String sourceLan, String targetLan, String voicePath, AudioFormat format, int rate,
+                               String outputPath, STSCallback stsCallback) {
+        return startFile(sourceLan, targetLan, voicePath, format, rate, outputPath, stsCallback, false);
+    }
+
+    /**
+     * @param unpaced 不按 {@link Builder#realTimeFactor} 限速，供批量翻译使用
+     */
+    STSSession startFile(String sourceLan, String targetLan, String voicePath, AudioFormat format, int rate,
+                         String outputPath, STSCallback stsCallback, boolean unpaced) {
+        int conversation = sessionIds.incrementAndGet();
+        LogUtils.d("startSTS {}", conversation);
+        if (!checkArguments(sourceLan, targetLan, rate, stsCallback)) {
+            return null;
+        } else if (TextUtils.isEmpty(voicePath)) {
             stsCallback.onError(30002, "Arguments are null!");
-            return;
+            return null;
         }
-        recordFile = voicePath;
-        voiceFile = outputPath;
-        File path = new File(voiceFile);
-        if (!path.exists())
-        	path.mkdirs();
-        fromLanguage = sourceLan;
-        toLanguage = targetLan;
-        StsThread stsThread;
-        StsRunnable stsRunnable;
-        this.stsCallback = stsCallback;
-        stsRunnable = new StsRunnable(conversation);
-        stsThread = new StsThread(conversation, stsRunnable);
-        stsThread.start();//开始请求
-    }
-
-    private String jsonPrepare(byte[] data) {//封装音频发送的json数据
-    	String encodedData = Base64.getEncoder()
-                .encodeToString(data);
-        JSONObject object = new JSONObject();
-        JSONObject object1 = new JSONObject();
-        object.put("audio", encodedData);
-        object1.put("data", object);
-        object1.put("type", "audio");
-        return object1.toString();
-    }
-
-    private String jsonEndPrepare() {//音频发送结束的json数据
-        JSONObject object1 = new JSONObject();
-        object1.put("type", "audio/end");
-        return object1.toString();
-    }
-
-    private static String generateWsUrl(String from, String to) throws Exception {//整合请求链接
-        String salt = EncryptUtil.getRandomString(10);
-        String time = ""+System.currentTimeMillis();
-        String sign = EncryptUtil.SHA256(Constant.APP_ID+salt+time+Constant.APP_SECRET);
-        return String.format(Constant.WSS_URL, Constant.APP_ID, salt, time, sign, from, to, Constant.AUDIO_RATE);
+        return start(new STSSession(this, conversation, languageCode(sourceLan), languageCode(targetLan), voicePath, format, rate,
+                unpaced, outputPath, stsCallback), stsCallback, null);
+    }
+
+    /**
+     * 以输入流作为音频来源开启会话，按 {@link Builder#realTimeFactor} 限速读取，读到流末尾后自动结束。
+     */
+    public STSSession startSTS(String sourceLan, String targetLan, InputStream voiceStream, String outputPath, STSCallback stsCallback) {
+        return startSTS(sourceLan, targetLan, voiceStream, AudioFormat.DEFAULT, outputPath, stsCallback);
+    }
+
+    /**
+     * 以指定格式的输入流作为音频来源开启会话。WAV 流可先调用 {@link AudioFormat#readWavHeader} 读取格式。
+     */
+    public STSSession startSTS(String sourceLan, String targetLan, InputStream voiceStream, AudioFormat format,
+                               String outputPath, STSCallback stsCallback) {
+        return startSTS(sourceLan, targetLan, voiceStream, format, sampleRate, outputPath, stsCallback);
+    }
+
+    /**
+     * 以指定格式的输入流作为音频来源，按指定的上传采样率开启会话。
+     *
+     * @param rate 本会话上传和合成音频的采样率，取值同 {@link Builder#sampleRate(int)}
+     */
+    public STSSession startSTS(String sourceLan, String targetLan, InputStream voiceStream, AudioFormat format, int rate,
+                               String outputPath, STSCallback stsCallback) {
+        int conversation = sessionIds.incrementAndGet();
+        LogUtils.d("startSTS {}", conversation);
+        if (!checkArguments(sourceLan, targetLan, rate, stsCallback)) {
+            return null;
+        } else if (voiceStream == null || format == null) {
+            stsCallback.onError(30002, "Arguments are null!");
+            return null;
+        }
+        return start(new STSSession(this, conversation, languageCode(sourceLan), languageCode(targetLan),
+                new PushAudioSource(inputBufferBytes), format, rate, false, outputPath, stsCallback), stsCallback, voiceStream);
+    }
+
+    /**
+     * 开启流式会话：通过 {@link STSSession#write} 实时写入 PCM，数据到达即发送，写完后调用 {@link STSSession#end()}。
+     * 连接建立前写入的数据会先缓存，缓存写满时 write 阻塞。
+     */
+    public STSSession startStream(String sourceLan, String targetLan, String outputPath, STSCallback stsCallback) {
+        return startStream(sourceLan, targetLan, AudioFormat.DEFAULT, outputPath, stsCallback);
+    }
+
+    /**
+     * 开启流式会话，写入的音频为指定格式。
+     */
+    public STSSession startStream(String sourceLan, String targetLan, AudioFormat format, String outputPath,
+                                  STSCallback stsCallback) {
+        return startStream(sourceLan, targetLan, format, sampleRate, outputPath, stsCallback);
+    }
+
+    /**
+     * 开启流式会话，写入的音频为指定格式，按指定的上传采样率发送。
+     *
+     * @param rate 本会话上传和合成音频的采样率，取值同 {@link Builder#sampleRate(int)}
+     */
+    public STSSession startStream(String sourceLan, String targetLan, AudioFormat format, int rate, String outputPath,
+                                  STSCallback stsCallback) {
+        int conversation = sessionIds.incrementAndGet();
+        LogUtils.d("startStream {}", conversation);
+        if (!checkArguments(sourceLan, targetLan, rate, stsCallback)) {
+            return null;
+        } else if (format == null) {
+            stsCallback.onError(30002, "Arguments are null!");
+            return null;
+        }
+        return start(new STSSession(this, conversation, languageCode(sourceLan), languageCode(targetLan),
+                new PushAudioSource(inputBufferBytes), format, rate, true, outputPath, stsCallback), stsCallback, null);
+    }
+
+    /**
+     * 翻译音频文件，会话结束后以全部最终结果完成，出错时以 {@link com.xap.voicetranslate.callback.STSException} 异常完成。
+     * 出错或取消返回的 future 时会取消会话。需要逐条处理结果时使用 {@link SessionPublisher}。
+     */
+    public CompletableFuture<SessionResult> translate(String sourceLan, String targetLan, String voicePath,
+                                                      String outputPath) {
+        return translate(sourceLan, targetLan, voicePath, sampleRate, outputPath);
     }
 
-    class StsThread extends Thread {
-        int conversation;
+    /**
+     * 以指定的上传采样率翻译音频文件。
+     *
+     * @param rate 本会话上传和合成音频的采样率，取值同 {@link Builder#sampleRate(int)}
+     */
+    public CompletableFuture<SessionResult> translate(String sourceLan, String targetLan, String voicePath, int rate,
+                                                      String outputPath) {
+        ResultCollector collector = new ResultCollector();
+        startSTS(sourceLan, targetLan, voicePath, null, rate, outputPath, collector);
+        return collector.result();
+    }
 
-        StsThread(int id, StsRunnable sendRunnable){
-            super(sendRunnable);
-            conversation = id;
+    private boolean checkArguments(String sourceLan, String targetLan, int rate, STSCallback stsCallback) {
+        if (stsCallback == null){
+            return false;
+        } else if (TextUtils.isEmpty(targetLan) || TextUtils.isEmpty(sourceLan)) {
+            stsCallback.onError(30002, "Arguments are null!");
+            return false;
+        } else if (rate != INPUT_RATE && (rate < MIN_RATE || rate > MAX_RATE)) {
+            stsCallback.onError(30002, "Unsupported sample rate: " + rate);
+            return false;
+        } else if (closed) {
+            stsCallback.onError(30002, "ComplexSpeech is closed!");
+            return false;
+        } else if (validateLanguages) {//不支持的语言在本地直接失败，不建立连接
+            String error = languages.validate(sourceLan, targetLan);
+            if (error != null) {
+                stsCallback.onError(30002, error);
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * 规范化的 BCP47 编码，如 en_us 转为 en-US；未开启校验且不在语言表中时原样返回。
+     */
+    String languageCode(String code) {
+        Language language = languages.find(code);
+        return language != null ? language.getCode() : code;
     }
 
-    class StsRunnable implements Runnable{
-        private int conversation;
+    /**
+     * 目标语言是否返回合成语音，不在语言表中时视为返回。
+     */
+    boolean hasSpeech(String targetLan) {
+        Language language = languages.find(targetLan);
+        return language == null || language.hasSpeech();
+    }
 
-        StsRunnable(int id){
-            conversation = id;
+    /**
+     * 会话开始，没有保活线程时启动一个。
+     */
+    private void sessionStarted() {
+        synchronized (keepAliveLock) {
+            liveSessions++;
+            if (keepAlive == null) {
+                keepAlive = new Thread(this::keepAlive, "xap-keepalive");
+                keepAlive.setDaemon(false);
+                keepAlive.start();
+            }
         }
+    }
 
-        @Override
-        public void run() {
-            LogUtils.d("startsend"+ conversation);
-            //LogUtils.d("startsend"+ s.hashCode()+socketUtils.isSocketOn(s));
-            if (conversation != currentConversation){//判断是否是最新会话（下同）
-                return;
+    /**
+     * 会话结束且回调全部执行完毕，由 {@link STSSession} 调用一次。
+     */
+    void sessionEnded() {
+        synchronized (keepAliveLock) {
+            if (--liveSessions == 0) {
+                keepAliveLock.notifyAll();
             }
-            String voiceName = System.currentTimeMillis()+".pcm";//新建音频输出文件
-            LogUtils.d(voiceName+"存储"+voiceFile);
-            File file = new File(voiceFile+voiceName);
-            LogUtils.d(conversation+"存储"+file.getAbsolutePath());
-            FileOutputStream voiceOut = null;
+        }
+    }
+
+    private void keepAlive() {
+        synchronized (keepAliveLock) {
             try {
-                voiceOut = new FileOutputStream(file);
-                FileOutputStream finalVoiceOut = voiceOut;
-                WebSocketListener listener = new WebSocketListener() {//websocket新建监听
-                    @Override
-                    public void onOpen(WebSocket webSocket, Response response) {
-                        if (conversation != currentConversation){
-                            return;
-                        }
-                        LogUtils.d("onOpen ");
-                        if (stsCallback != null) {
-                            stsCallback.onOpen();
-                        }           
-                        byte[] bytes = new byte[0x8FFE];
-                        InputStream inputStream = null;
-                        try {
-                            inputStream = new FileInputStream(recordFile);
-                            int len = -1;
-                            while ((len = inputStream.read(bytes)) != -1 && conversation == currentConversation) {
-                                String data = jsonPrepare(bytes);
-                                LogUtils.d("to send"+data);
-                                boolean isOk = webSocket.send(data);//发送读取的音频数据
-                                if (!isOk) {
-                                    LogUtils.d("send error");
-                                } else {
-                                    LogUtils.d("send ok");
-                                }
-                            }
-                            String data = jsonEndPrepare();//发送音频结束
-                            LogUtils.d("to send"+data);
-                            boolean isOk = webSocket.send(data);
-                            if (!isOk) {
-                                LogUtils.d("send error");
-                            } else {
-                                LogUtils.d("send ok");
-                            }
-                        } catch (Exception e) {
-                            LogUtils.d(String.valueOf(e));
-                            if (stsCallback != null && conversation == currentConversation){
-                                stsCallback.onError(30002, e.getMessage());
-                            }
-                        }finally {
-                            try {
-                                if (inputStream != null){
-                                    inputStream.close();
-                                }
-                            } catch (IOException e) {
-                                if (stsCallback != null && conversation == currentConversation){
-                                    stsCallback.onError(30002, e.getMessage());
-                                }                       
-                            }
-                        }                     
-                    }
-
-                    @Override
-                    public void onMessage(WebSocket webSocket, ByteString bytes) {
-                        String text = bytes.string(Charset.defaultCharset());
-                        if (conversation != currentConversation){
-                            return;
-                        }
-                        LogUtils.d(text);
-                        try {
-                            JSONObject j = JSON.parseObject(text);
-                            final String type = j.getString("type");
-                            JSONObject data;
-                            boolean isEnd;
-                            switch (type){
-                                case "audio":    //收到音频数据
-                                    data = j.getJSONObject("data");
-                                    String audio = data.getString("audio");
-                                    byte[] voice = Base64.getDecoder().decode(audio);//解码音频数据
-                                    if (voice == null || voice.length <= 0){
-                                        if (stsCallback != null) {
-                                            stsCallback.onError(30003, "Audio data invalid!");
-                                        }
-                                        break;
-                                    }
-                                    finalVoiceOut.write(voice);//写入音频数据
-                                    break;
-                                case "audio/flush": //音频接收完成
-                                    if (stsCallback != null && conversation == currentConversation) {
-                                        finalVoiceOut.close();
-                                        String path = AudioUtil.convertWaveFile(voiceFile+voiceName);//转码音频为wav格式
-                                        file.delete();
-                                        stsCallback.onFinish(path);
-                                    }
-                                    break;
-                                case "origin":  //收到识别结果
-                                    data = j.getJSONObject("data");
-                                    String rec = data.getString("sentence");
-                                    isEnd = data.getBoolean("is-final");
-                                    if (stsCallback != null && conversation == currentConversation) {
-                                        stsCallback.onRecognizeSuccess(isEnd, rec);//传递识别文字
-                                    }
-                                    break;
-                                case "origin/end": //识别结束
-                                    break;
-                                case "translation": //收到翻译结果
-                                    data = j.getJSONObject("data");
-                                    String trans = data.getString("sentence");
-                                    isEnd = data.getBoolean("is-final");
-                                    if (stsCallback != null && conversation == currentConversation) {
-                                        stsCallback.onTranslateSuccess(isEnd, trans);//传递翻译文字
-                                    }
-                                    break;
-                                case "translation/end": //翻译结束
-                                    break;
-                            }
-                        } catch (Exception e) {
-                            LogUtils.d(e.getMessage());
-                            if (stsCallback != null && conversation == currentConversation){
-                                file.delete();
-                                stsCallback.onError(30003, e.getMessage());
-                            }
-                        }
-                        LogUtils.d("onMessage " + text);
-                    }
-
-                    @Override
-                    public void onClosed(WebSocket webSocket, int code, String reason) {
-                        if (conversation != currentConversation){
-                            return;
-                        }
-                        LogUtils.d("onClosed " + reason);
-                    }
-
-                    @Override
-                    public void onClosing(WebSocket webSocket, int code, String reason) {
-                        if (conversation != currentConversation){
-                            return;
-                        }
-                        LogUtils.d("onClosing " + reason);
-                    }
-
-                    @Override
-                    public void onFailure(WebSocket webSocket, Throwable t, Response response) {
-                        if (conversation != currentConversation){
-                            return;
-                        }
-                        if (stsCallback != null){
-                            file.delete();
-                            stsCallback.onError(30001, String.valueOf(t));//websocket报错
-                        }
-                        LogUtils.d("onError " + String.valueOf(t) + response.toString());
-                    }
-                };
-                Request request = null;
-                LogUtils.d(generateWsUrl(fromLanguage, toLanguage).replace(" ", ""));
-                request = new Request.Builder()
-                        .url(generateWsUrl(fromLanguage, toLanguage).replace(" ", ""))
-                        .build();
-                OkHttpClient client = new OkHttpClient();
-                client.newWebSocket(request, listener);//建立websocket
-            } catch (Exception e) {
-                if (stsCallback != null && conversation == currentConversation){
-                    stsCallback.onError(30001, e.getMessage());
+                while (liveSessions > 0) {
+                    keepAliveLock.wait();
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                keepAlive = null;
             }
         }
     }
+
+    /**
+     * 在会话线程池上建立连接，输入流会话另在输入线程上读取输入流。
+     */
+    private STSSession start(STSSession session, STSCallback stsCallback, InputStream voiceStream) {
+        sessionStarted();
+        if (!TextUtils.isEmpty(session.getVoiceFile())) {
+            File path = new File(session.getVoiceFile());
+            if (!path.exists())
+                path.mkdirs();
+        }
+        if (stsCallback instanceof SessionBound) {
+            ((SessionBound) stsCallback).bind(session);
+        }
+        try {
+            executor.execute(session::connect);//开始请求
+            if (voiceStream != null) {
+                inputExecutor.execute(() -> session.pump(voiceStream));
+            }
+        } catch (RejectedExecutionException e) {
+            LogUtils.w("session rejected", e);
+            session.cancel();
+            stsCallback.onError(30002, "Executor rejected the session!");
+            return null;
+        }
+        return session;
+    }
+
+    CredentialPool credentials() {
+        return credentials;
+    }
+
+    /**
+     * 以取得名额的账号签名并建立连接，连接结束时归还名额；建立失败时立即归还并抛出异常。
+     */
+    WebSocket newWebSocket(CredentialPool.Account account, String from, String to, int rate,
+                           WebSocketListener listener) throws Exception {
+        try {
+            String url = generateWsUrl(account.credential, from, to, rate).replace(" ", "");
+            LogUtils.d("connect {}", url);
+            Request request = new Request.Builder()
+                    .url(url)
+                    .build();
+            return client.newWebSocket(request, credentials.lease(account, listener));
+        } catch (Exception e) {
+            credentials.release(account);
+            throw e;
+        }
+    }
+
+    String generateWsUrl(Credential credential, String from, String to, int rate) throws Exception {//整合请求链接
+        String appId = credential.getAppId();
+        String salt = EncryptUtil.getRandomString(10);
+        String time = ""+System.currentTimeMillis();
+        String sign = EncryptUtil.SHA256(appId+salt+time+credential.getAppSecret());
+        return String.format(wssUrl, appId, salt, time, sign, from, to, rate);
+    }
+
+    public static class Builder {
+        private String wssUrl = Constant.WSS_URL;
+        private String appId = Constant.APP_ID;
+        private String appSecret = Constant.APP_SECRET;
+        private final List<Credential> credentials = new ArrayList<>();
+        private OkHttpClient client;
+        private long pingIntervalMillis = 0;
+        private long connectTimeoutMillis = 10_000;
+        private long readTimeoutMillis = 0;
+        private long writeTimeoutMillis = 10_000;
+        private int maxRequests = 4096;
+        private int maxRequestsPerHost = 4096;
+        private int uploadThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        private int frameMillis = 40;
+        private double realTimeFactor = 1.0;
+        private long maxQueueBytes = 1024 * 1024;
+        private int inputBufferBytes = Constant.AUDIO_RATE * 2 * 10;
+        private int maxPooledAudioBuffers = 256;
+        private int minLegSeconds = 150;
+        private int maxLegSeconds = 170;
+        private int silenceKeepMillis = 0;
+        private int sampleRate = Constant.AUDIO_RATE;
+        private Executor executor;
+        private int maxSessionThreads = 256;
+        private int callbackQueueSize = 1024;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private double silenceThreshold = SilenceFilter.DEFAULT_THRESHOLD;
+        private MetricsListener metricsListener;
+        private int warmConnections = 0;
+        private int maxWarmConnections = 64;
+        private long warmIdleTimeoutMillis = 10_000;
+        private boolean jmx;
+        private boolean validateLanguages = true;
+        private ResultCache resultCache;
+
+        /**
+         * 服务地址模板，参数顺序同 {@link Constant#WSS_URL}，默认即为该值。
+         */
+        public Builder url(String wssUrl) {
+            if (TextUtils.isEmpty(wssUrl)) {
+                throw new IllegalArgumentException("wssUrl is empty");
+            }
+            this.wssUrl = wssUrl;
+            return this;
+        }
+
+        /**
+         * 应用 ID 和密钥，默认取 {@link Constant#APP_ID}、{@link Constant#APP_SECRET}；
+         * 通过 {@link #addCredential(Credential)} 配置了账号时不再使用。
+         */
+        public Builder credentials(String appId, String appSecret) {
+            if (TextUtils.isEmpty(appId) || TextUtils.isEmpty(appSecret)) {
+                throw new IllegalArgumentException("appId or appSecret is empty");
+            }
+            this.appId = appId;
+            this.appSecret = appSecret;
+            return this;
+        }
+
+        /**
+         * 添加一个账号，可多次调用：新连接分配给负载最低的账号，各账号的并发和建连速率达到上限时在本地排队。
+         */
+        public Builder addCredential(Credential credential) {
+            if (credential == null) {
+                throw new IllegalArgumentException("credential is null");
+            }
+            this.credentials.add(credential);
+            return this;
+        }
+
+        /**
+         * 开启会话前是否按 {@link LanguageRegistry} 校验语言对，默认 true；服务端新增语言而 SDK 尚未更新时可关闭。
+         */
+        public Builder validateLanguages(boolean validate) {
+            this.validateLanguages = validate;
+            return this;
+        }
+
+        /**
+         * 开启结果缓存：文件会话先按音频内容查找缓存，命中时直接回调缓存的最终结果，不建立连接，默认不开启。
+         * 输入流会话和流式会话不使用缓存。
+         */
+        public Builder resultCache(ResultCache cache) {
+            this.resultCache = cache;
+            return this;
+        }
+
+        /**
+         * 使用外部的 OkHttpClient，此时其余网络参数均被忽略，close() 也不会关闭它。
+         */
+        public Builder client(OkHttpClient client) {
+            this.client = client;
+            return this;
+        }
+
+        public Builder pingInterval(long interval, TimeUnit unit) {
+            this.pingIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * WebSocket 读超时，默认 0（不超时），服务端 16s 无数据会主动断开。
+         */
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder writeTimeout(long timeout, TimeUnit unit) {
+            this.writeTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * 并发连接上限，每个进行中的会话占用一个名额。
+         */
+        public Builder maxConnections(int maxRequests, int maxRequestsPerHost) {
+            if (maxRequests < 1 || maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("max < 1");
+            }
+            this.maxRequests = maxRequests;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * 每帧音频的时长，如 20/40/100 毫秒，默认 40。
+         */
+        public Builder frameDuration(int millis) {
+            if (millis < 1) {
+                throw new IllegalArgumentException("millis < 1");
+            }
+            this.frameMillis = millis;
+            return this;
+        }
+
+        /**
+         * 上传速度相对实时的倍数，默认 1.0（按实时速度发送）；小于等于 0 表示不限速。
+         */
+        public Builder realTimeFactor(double factor) {
+            this.realTimeFactor = factor;
+            return this;
+        }
+
+        /**
+         * WebSocket 发送队列积压超过该字节数时暂停上传，默认 1MB（OkHttp 超过 16MB 会直接断开连接）。
+         */
+        public Builder maxQueueBytes(long bytes) {
+            if (bytes < 1) {
+                throw new IllegalArgumentException("bytes < 1");
+            }
+            this.maxQueueBytes = bytes;
+            return this;
+        }
+
+        /**
+         * 流式会话和输入流会话的缓存大小，默认可缓存 10 秒音频，写满后 write 阻塞。
+         */
+        public Builder inputBufferBytes(int bytes) {
+            if (bytes < 2) {
+                throw new IllegalArgumentException("bytes < 2");
+            }
+            this.inputBufferBytes = bytes;
+            return this;
+        }
+
+        /**
+         * 单个连接上传的音频时长：超过 minSeconds 后在静音处、或达到 maxSeconds 时切换到新的连接继续上传，
+         * 服务端单个连接最多处理 3 分钟音频，默认 150 ~ 170 秒。
+         */
+        public Builder legDuration(int minSeconds, int maxSeconds) {
+            if (minSeconds < 1 || maxSeconds < minSeconds || maxSeconds > 180) {
+                throw new IllegalArgumentException("require 1 <= minSeconds <= maxSeconds <= 180");
+            }
+            this.minLegSeconds = minSeconds;
+            this.maxLegSeconds = maxSeconds;
+            return this;
+        }
+
+        /**
+         * 会话上传和合成音频的默认采样率，默认 Constant.AUDIO_RATE；输入音频的采样率不同时在客户端重采样。
+         * 取 {@link ComplexSpeech#INPUT_RATE} 时按输入音频的采样率上传（限制在服务端支持的 8000 ~ 55000 内）。
+         * 单个会话可通过带 rate 参数的 startSTS / startStream / translate 另行指定。
+         */
+        public Builder sampleRate(int rate) {
+            if (rate != INPUT_RATE && (rate < MIN_RATE || rate > MAX_RATE)) {
+                throw new IllegalArgumentException("rate must be INPUT_RATE or in [8000, 55000]");
+            }
+            this.sampleRate = rate;
+            return this;
+        }
+
+        /**
+         * 建立连接和执行回调的线程池，只执行短任务，不随 {@link #close()} 关闭。
+         * 默认在 JDK 21 及以上每个任务使用一个虚拟线程，低版本使用最多 {@link #maxSessionThreads} 个线程的线程池。
+         * 上传分帧始终在 {@link #uploadThreads} 个上传线程上执行；输入流会话阻塞读取输入流时使用客户端内部的输入线程
+         * （每个会话一个，JDK 21 及以上为虚拟线程），不占用该线程池，避免大量输入流会话占满线程池后回调和建连无法执行。
+         * 默认线程池的线程均为守护线程（虚拟线程也总是守护线程），因此从 startSTS 到会话结束、回调全部执行完毕期间，
+         * 客户端另外保持一个非守护线程 xap-keepalive，main 返回后进程会等待进行中的会话；没有会话时该线程退出，不阻止进程退出。
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * 未指定 {@link #executor} 且运行在 JDK 21 以下时，默认线程池的线程数上限，默认 256，超出的任务排队。
+         */
+        public Builder maxSessionThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads < 1");
+            }
+            this.maxSessionThreads = threads;
+            return this;
+        }
+
+        /**
+         * 回调队列：{@link STSCallback} 在独立的回调线程上按顺序执行，读线程只负责入队，回调耗时不影响接收。
+         * 每个会话最多排队 capacity 个回调，队列写满时按 policy 处理，默认 1024 个、{@link OverflowPolicy#BLOCK}。
+         */
+        public Builder callbackQueue(int capacity, OverflowPolicy policy) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity < 1");
+            } else if (policy == null) {
+                throw new IllegalArgumentException("policy == null");
+            }
+            this.callbackQueueSize = capacity;
+            this.overflowPolicy = policy;
+            return this;
+        }
+
+        /**
+         * 开启静音过滤：连续静音超过 keepMillis 的部分不上传，节省带宽和单连接的音频时长，默认关闭。
+         * keepMillis 不宜小于 300ms，否则服务端难以断句；长音频切换连接按过滤前的静音判断，不受 keepMillis 影响。
+         */
+        public Builder suppressSilence(int keepMillis) {
+            if (keepMillis < 100) {
+                throw new IllegalArgumentException("keepMillis < 100");
+            }
+            this.silenceKeepMillis = keepMillis;
+            return this;
+        }
+
+        /**
+         * 静音检测的能量阈值（16bit 样本的均方根），默认 400；背景噪声较大时适当调高。
+         * 静音过滤和长音频切换连接使用同一阈值。
+         */
+        public Builder silenceThreshold(double rms) {
+            if (rms <= 0) {
+                throw new IllegalArgumentException("rms <= 0");
+            }
+            this.silenceThreshold = rms;
+            return this;
+        }
+
+        /**
+         * 合成音频缓冲池最多保留的空闲缓冲区个数（每个 64KB），默认 256。
+         */
+        public Builder maxPooledAudioBuffers(int count) {
+            if (count < 0) {
+                throw new IllegalArgumentException("count < 0");
+            }
+            this.maxPooledAudioBuffers = count;
+            return this;
+        }
+
+        /**
+         * 上传调度线程数，默认取 CPU 核数（至少 2）。
+         */
+        public Builder uploadThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads < 1");
+            }
+            this.uploadThreads = threads;
+            return this;
+        }
+
+        /**
+         * 每个语言对预先建立的空闲连接数，默认 0（不预建连接）。开启后每次会话都会在后台补充连接，
+         * 也可通过 {@link ComplexSpeech#warmUp} 提前建立。
+         */
+        public Builder warmConnections(int perLanguagePair) {
+            if (perLanguagePair < 0) {
+                throw new IllegalArgumentException("perLanguagePair < 0");
+            }
+            this.warmConnections = perLanguagePair;
+            return this;
+        }
+
+        /**
+         * 所有语言对预建连接的总数上限，默认 64。
+         */
+        public Builder maxWarmConnections(int max) {
+            if (max < 1) {
+                throw new IllegalArgumentException("max < 1");
+            }
+            this.maxWarmConnections = max;
+            return this;
+        }
+
+        /**
+         * 预建连接的最长保留时间，超过后关闭并重建，需小于服务端 16 秒的空闲断开时间，默认 10 秒。
+         */
+        public Builder warmIdleTimeout(long timeout, TimeUnit unit) {
+            long millis = unit.toMillis(timeout);
+            if (millis < 1000 || millis >= 16_000) {
+                throw new IllegalArgumentException("timeout must be in [1s, 16s)");
+            }
+            this.warmIdleTimeoutMillis = millis;
+            return this;
+        }
+
+        /**
+         * 设置会话指标监听并开启指标采集，默认不采集。
+         */
+        public Builder metrics(MetricsListener listener) {
+            this.metricsListener = listener;
+            return this;
+        }
+
+        /**
+         * 开启指标采集并将 {@link ClientMetrics} 注册为 JMX MBean，close() 时注销，默认关闭。
+         */
+        public Builder jmx(boolean enabled) {
+            this.jmx = enabled;
+            return this;
+        }
+
+        public ComplexSpeech build() {
+            return new ComplexSpeech(this);
+        }
+    }
 }
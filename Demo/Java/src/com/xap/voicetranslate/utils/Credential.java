@@ -0,0 +1,65 @@
+package com.xap.voicetranslate.utils;
+
+/**
+ * 一个应用账号及其配额，通过 {@link ComplexSpeech.Builder#addCredential(Credential)} 配置多个账号分摊会话。
+ */
+public final class Credential {
+    private final String appId;
+    private final String appSecret;
+    private final int maxConnections;
+    private final double connectsPerSecond;
+    private final int burst;
+
+    /**
+     * 不限制并发和建连速率的账号。
+     */
+    public Credential(String appId, String appSecret) {
+        this(appId, appSecret, 0, 0, 0);
+    }
+
+    /**
+     * @param maxConnections    同时保持的连接数上限（含预建连接），0 表示不限制
+     * @param connectsPerSecond 每秒新建连接数上限，0 表示不限制
+     * @param burst             可连续新建的连接数，即令牌桶容量，不小于 1
+     */
+    public Credential(String appId, String appSecret, int maxConnections, double connectsPerSecond, int burst) {
+        if (TextUtils.isEmpty(appId) || TextUtils.isEmpty(appSecret)) {
+            throw new IllegalArgumentException("appId or appSecret is empty");
+        } else if (maxConnections < 0 || connectsPerSecond < 0) {
+            throw new IllegalArgumentException("maxConnections or connectsPerSecond < 0");
+        } else if (connectsPerSecond > 0 && burst < 1) {
+            throw new IllegalArgumentException("burst < 1");
+        }
+        this.appId = appId;
+        this.appSecret = appSecret;
+        this.maxConnections = maxConnections;
+        this.connectsPerSecond = connectsPerSecond;
+        this.burst = burst;
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    String getAppSecret() {
+        return appSecret;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public double getConnectsPerSecond() {
+        return connectsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    @Override
+    public String toString() {
+        return "Credential{appId=" + appId + ", maxConnections=" + maxConnections
+                + ", connectsPerSecond=" + connectsPerSecond + ", burst=" + burst + '}';
+    }
+}
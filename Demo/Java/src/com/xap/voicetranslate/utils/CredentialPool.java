@@ -0,0 +1,267 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * 建连准入：在多个账号之间分配新连接，按账号限制并发连接数和建连速率（令牌桶）。
+ * 没有账号可用时请求在本地排队，有连接关闭或令牌补充后按顺序放行，不把超出配额的握手发给服务端。
+ * 每次成功的 {@link #acquire} / {@link #tryAcquire} 都必须对应一次 {@link #release}。
+ */
+final class CredentialPool {
+    private final Account[] accounts;
+    private final ScheduledExecutorService scheduler;
+
+    //以下由 this 保护
+    private final ArrayDeque<Consumer<Account>> waiters = new ArrayDeque<>();
+    private boolean timerScheduled;
+
+    CredentialPool(List<Credential> credentials, ScheduledExecutorService scheduler) {
+        this.accounts = new Account[credentials.size()];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new Account(credentials.get(i));
+        }
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 取得一个账号的连接名额后执行 grant：有名额时在当前线程执行，否则排队，之后在调度线程上执行。
+     *
+     * @param priority 进行中会话的后续连接（切换、重连）排在新会话之前，避免上传中断
+     */
+    void acquire(boolean priority, Consumer<Account> grant) {
+        Account account;
+        synchronized (this) {
+            account = waiters.isEmpty() ? take(System.nanoTime()) : null;
+            if (account == null) {
+                if (priority) {
+                    waiters.addFirst(grant);
+                } else {
+                    waiters.addLast(grant);
+                }
+                LogUtils.d("connection queued, waiting {}", waiters.size());
+                scheduleRetry(System.nanoTime());
+                return;
+            }
+        }
+        grant.accept(account);
+    }
+
+    /**
+     * 不排队地取得名额，用于预建连接。
+     *
+     * @return 没有名额或已有请求在排队时返回 null
+     */
+    synchronized Account tryAcquire() {
+        return waiters.isEmpty() ? take(System.nanoTime()) : null;
+    }
+
+    void release(Account account) {
+        synchronized (this) {
+            account.active--;
+        }
+        dispatch();
+    }
+
+    /**
+     * 包装连接的监听，连接结束（onClosed 或 onFailure）时归还名额。
+     */
+    WebSocketListener lease(Account account, WebSocketListener listener) {
+        return new Lease(account, listener);
+    }
+
+    /**
+     * 当前排队的请求数。
+     */
+    synchronized int queued() {
+        return waiters.size();
+    }
+
+    /**
+     * 按顺序放行排队的请求，直到没有可用名额。
+     */
+    private void dispatch() {
+        List<Runnable> granted = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            while (!waiters.isEmpty()) {
+                Account account = take(now);
+                if (account == null) {
+                    scheduleRetry(now);
+                    break;
+                }
+                Consumer<Account> grant = waiters.poll();
+                granted.add(() -> grant.accept(account));
+            }
+        }
+        for (Runnable task : granted) {
+            try {
+                scheduler.execute(task);//不在连接的读线程上建连
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * 选出负载最低且有令牌的账号并占用一个名额，持有 this。
+     */
+    private Account take(long now) {
+        Account best = null;
+        double bestLoad = Double.MAX_VALUE;
+        for (Account account : accounts) {
+            if (!account.hasCapacity() || !account.hasToken(now)) {
+                continue;
+            }
+            double load = account.load();
+            if (load < bestLoad) {
+                best = account;
+                bestLoad = load;
+            }
+        }
+        if (best != null) {
+            best.takeToken();
+            best.active++;
+        }
+        return best;
+    }
+
+    /**
+     * 有账号只是缺少令牌时，在最早补充令牌的时刻重新放行；只缺并发名额时等待连接关闭。持有 this。
+     */
+    private void scheduleRetry(long now) {
+        if (timerScheduled) {
+            return;
+        }
+        long wait = Long.MAX_VALUE;
+        for (Account account : accounts) {
+            if (account.hasCapacity()) {
+                wait = Math.min(wait, account.nanosUntilToken(now));
+            }
+        }
+        if (wait == Long.MAX_VALUE) {
+            return;
+        }
+        timerScheduled = true;
+        try {
+            scheduler.schedule(() -> {
+                synchronized (this) {
+                    timerScheduled = false;
+                }
+                dispatch();
+            }, Math.max(wait, TimeUnit.MILLISECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            timerScheduled = false;
+            LogUtils.w("schedule admission failed", e);
+        }
+    }
+
+    /**
+     * 一个账号的占用状态，均由 CredentialPool 的锁保护。
+     */
+    static final class Account {
+        final Credential credential;
+        private final long nanosPerToken;//0 表示不限速
+        private double tokens;
+        private long refillNanos = System.nanoTime();
+        private int active;
+
+        Account(Credential credential) {
+            this.credential = credential;
+            this.nanosPerToken = credential.getConnectsPerSecond() > 0
+                    ? (long) (TimeUnit.SECONDS.toNanos(1) / credential.getConnectsPerSecond()) : 0;
+            this.tokens = credential.getBurst();
+        }
+
+        boolean hasCapacity() {
+            return credential.getMaxConnections() == 0 || active < credential.getMaxConnections();
+        }
+
+        double load() {
+            int max = credential.getMaxConnections();
+            return max == 0 ? active / (double) Integer.MAX_VALUE : active / (double) max;
+        }
+
+        boolean hasToken(long now) {
+            if (nanosPerToken == 0) {
+                return true;
+            }
+            tokens = Math.min(credential.getBurst(), tokens + (now - refillNanos) / (double) nanosPerToken);
+            refillNanos = now;
+            return tokens >= 1;
+        }
+
+        void takeToken() {
+            if (nanosPerToken != 0) {
+                tokens -= 1;
+            }
+        }
+
+        long nanosUntilToken(long now) {
+            if (nanosPerToken == 0 || hasToken(now)) {
+                return 0;
+            }
+            return (long) ((1 - tokens) * nanosPerToken) + 1;
+        }
+    }
+
+    private final class Lease extends WebSocketListener {
+        private final Account account;
+        private final WebSocketListener target;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(Account account, WebSocketListener target) {
+            this.account = account;
+            this.target = target;
+        }
+
+        private void done() {
+            if (released.compareAndSet(false, true)) {
+                release(account);
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            target.onOpen(webSocket, response);
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            target.onMessage(webSocket, text);
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, ByteString bytes) {
+            target.onMessage(webSocket, bytes);
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            target.onClosing(webSocket, code, reason);
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            done();
+            target.onClosed(webSocket, code, reason);
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            done();
+            target.onFailure(webSocket, t, response);
+        }
+    }
+}
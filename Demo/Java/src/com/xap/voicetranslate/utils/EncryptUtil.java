@@ -1,39 +1,62 @@
 package com.xap.voicetranslate.utils;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.util.Random;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 
 public class EncryptUtil {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    //MessageDigest 非线程安全，每个线程复用一个实例
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
 
     public static String SHA256(String data) throws Exception {
-        MessageDigest messageDigest;
-        String encodeStr = "";
-        messageDigest = MessageDigest.getInstance("SHA-256");
-        messageDigest.update(data.getBytes("UTF-8"));
-        encodeStr = byte2Hex(messageDigest.digest());
-        return encodeStr;
+        MessageDigest messageDigest = SHA256.get();
+        messageDigest.reset();
+        return byte2Hex(messageDigest.digest(data.getBytes(StandardCharsets.UTF_8)));
     }
 
-    private static String byte2Hex(byte[] bytes){
-        StringBuilder stringBuffer = new StringBuilder();
-        String temp = null;
-        for (int i=0;i<bytes.length;i++){
-            temp = Integer.toHexString(bytes[i] & 0xFF);
-            if (temp.length()==1){
-                stringBuffer.append("0");
-            }
-            stringBuffer.append(temp);
+    /**
+     * 当前线程复用的 SHA-256 实例，已 reset。
+     */
+    static MessageDigest sha256() {
+        MessageDigest messageDigest = SHA256.get();
+        messageDigest.reset();
+        return messageDigest;
+    }
+
+    static String byte2Hex(byte[] bytes){
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            chars[j++] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[j++] = HEX[bytes[i] & 0xF];
         }
-        return stringBuffer.toString();
+        return new String(chars);
     }
 
+    /**
+     * 生成签名用的随机串，每次调用都不同。
+     */
     public static String getRandomString(int length){
-        String str = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-        Random random = new Random(length);
-        StringBuilder sb = new StringBuilder();
-        for(int i = 0; i < length; i++){
-            int number = random.nextInt(62);
-            sb.append(str.charAt(number));
+        byte[] bytes = new byte[length + length / 4 + 4];
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            RANDOM.nextBytes(bytes);
+            for (int i = 0; i < bytes.length && sb.length() < length; i++) {
+                int b = bytes[i] & 0xFF;
+                if (b < 248) {//248 = 62 * 4，丢弃余数部分以保证均匀分布
+                    sb.append(CHARS.charAt(b % 62));
+                }
+            }
         }
         return sb.toString();
     }
@@ -0,0 +1,75 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+class FileAudioSource implements AudioSource {
+    private final InputStream in;
+    private long remaining;//WAV 文件 data 块的剩余字节，-1 表示读到文件末尾
+
+    /**
+     * @param wav 是否为 WAV 文件，是则跳过文件头，只读取 data 块
+     */
+    FileAudioSource(String path, boolean wav) throws IOException {
+        if (!wav) {
+            in = new FileInputStream(path);
+            remaining = -1;
+            return;
+        }
+        in = new BufferedInputStream(new FileInputStream(path));
+        try {
+            remaining = AudioFormat.readWavHeader(in).getDataLength();
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 读取 WAV 文件头，文件不以 RIFF 开头时返回 null。
+     */
+    static AudioFormat readHeader(String path) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+            in.mark(4);
+            byte[] magic = new byte[4];
+            int n = 0, len;
+            while (n < 4 && (len = in.read(magic, n, 4 - n)) != -1) {
+                n += len;
+            }
+            if (n < 4 || magic[0] != 'R' || magic[1] != 'I' || magic[2] != 'F' || magic[3] != 'F') {
+                return null;
+            }
+            in.reset();
+            return AudioFormat.readWavHeader(in);
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (remaining == 0) {
+            return -1;
+        } else if (remaining > 0 && length > remaining) {
+            length = (int) remaining;
+        }
+        int total = 0;
+        while (total < length) {//尽量读满一帧
+            int len = in.read(buffer, offset + total, length - total);
+            if (len == -1) {
+                remaining = 0;
+                return total == 0 ? -1 : total;
+            }
+            total += len;
+        }
+        if (remaining > 0) {
+            remaining -= total;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,148 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.IOException;
+
+/**
+ * 格式转换：包装按输入格式读取的音频来源，解码为 float 并混音到单声道，必要时重采样，输出 16bit 单声道 PCM。
+ * 所有缓冲区在创建时分配并复用，只在上传线程上读取。
+ */
+class FormatConverter implements AudioSource {
+    private static final int BLOCK_FRAMES = 1024;
+
+    private final AudioSource source;
+    private final AudioFormat format;
+    private final Resampler resampler;//采样率相同时为 null
+    private final int frameBytes;
+
+    private final byte[] raw;
+    private int rawLen;//不足一帧的剩余字节
+    private final float[] mono = new float[BLOCK_FRAMES];
+    private float[] resampled;
+
+    //待输出的 16bit PCM
+    private byte[] out;
+    private int outPos, outLen;
+    private boolean ended;
+
+    FormatConverter(AudioSource source, AudioFormat format, int outRate) {
+        this.source = source;
+        this.format = format;
+        this.frameBytes = format.getFrameBytes();
+        this.raw = new byte[BLOCK_FRAMES * frameBytes];
+        if (format.getSampleRate() != outRate) {
+            resampler = new Resampler(format.getSampleRate(), outRate);
+            resampled = new float[resampler.maxOutput(BLOCK_FRAMES)];
+        } else {
+            resampler = null;
+            resampled = mono;
+        }
+        out = new byte[resampled.length * 2];
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = 0;
+        while (n < length) {
+            if (outPos < outLen) {
+                int count = Math.min(length - n, outLen - outPos);
+                System.arraycopy(out, outPos, buffer, offset + n, count);
+                outPos += count;
+                n += count;
+                continue;
+            }
+            if (ended) {
+                break;
+            }
+            int len = source.read(raw, rawLen, raw.length - rawLen);
+            if (len == -1) {
+                ended = true;//不足一帧的尾部丢弃
+                if (resampler != null) {
+                    ensureCapacity(resampler.maxOutput(0));
+                    encode(resampler.flush(resampled));
+                }
+                continue;
+            }
+            if (len == 0) {
+                break;
+            }
+            rawLen += len;
+            int frames = rawLen / frameBytes;
+            if (frames == 0) {
+                continue;
+            }
+            decode(frames);
+            int used = frames * frameBytes;
+            System.arraycopy(raw, used, raw, 0, rawLen - used);
+            rawLen -= used;
+            if (resampler != null) {
+                ensureCapacity(resampler.maxOutput(frames));
+                encode(resampler.process(mono, frames, resampled));
+            } else {
+                encode(frames);
+            }
+        }
+        return n == 0 && ended ? -1 : n;
+    }
+
+    /**
+     * 解码 frames 帧并对各声道取平均，结果为 16bit 幅度的 float。
+     */
+    private void decode(int frames) {
+        int channels = format.getChannels();
+        int bytes = format.getBitsPerSample() / 8;
+        boolean floating = format.isFloating();
+        float scale = 1f / channels;
+        int i = 0;
+        for (int f = 0; f < frames; f++) {
+            float sum = 0;
+            for (int c = 0; c < channels; c++, i += bytes) {
+                switch (bytes) {
+                    case 1:
+                        sum += ((raw[i] & 0xff) - 128) << 8;
+                        break;
+                    case 2:
+                        sum += (short) ((raw[i] & 0xff) | raw[i + 1] << 8);
+                        break;
+                    case 3:
+                        sum += ((raw[i] & 0xff) | (raw[i + 1] & 0xff) << 8 | raw[i + 2] << 16) / 256f;
+                        break;
+                    default:
+                        int bits = (raw[i] & 0xff) | (raw[i + 1] & 0xff) << 8 | (raw[i + 2] & 0xff) << 16
+                                | raw[i + 3] << 24;
+                        sum += floating ? Float.intBitsToFloat(bits) * 32768f : bits / 65536f;
+                        break;
+                }
+            }
+            mono[f] = sum * scale;
+        }
+    }
+
+    private void ensureCapacity(int samples) {
+        if (resampled.length < samples) {
+            resampled = new float[samples];
+            out = new byte[samples * 2];
+        }
+    }
+
+    private void encode(int samples) {
+        float[] pcm = resampled;
+        byte[] o = out;
+        for (int s = 0, j = 0; s < samples; s++, j += 2) {
+            int v = Math.round(pcm[s]);
+            if (v > Short.MAX_VALUE) {
+                v = Short.MAX_VALUE;
+            } else if (v < Short.MIN_VALUE) {
+                v = Short.MIN_VALUE;
+            }
+            o[j] = (byte) v;
+            o[j + 1] = (byte) (v >> 8);
+        }
+        outPos = 0;
+        outLen = samples * 2;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
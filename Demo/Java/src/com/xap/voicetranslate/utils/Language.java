@@ -0,0 +1,70 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 服务端支持的一种语言，见接口文档附录一。实例由 {@link LanguageRegistry} 创建，不可变。
+ */
+public final class Language {
+
+    /**
+     * 语言支持的能力。
+     */
+    public enum Capability {
+        RECOGNITION,//可作为源语言识别
+        TRANSLATION,//可作为目标语言翻译
+        SPEECH_SYNTHESIS//作为目标语言时返回合成语音
+    }
+
+    private final int index;
+    private final String code;
+    private final String name;
+    private final Set<Capability> capabilities;
+
+    Language(int index, String code, String name, Set<Capability> capabilities) {
+        this.index = index;
+        this.code = code;
+        this.name = name;
+        this.capabilities = Collections.unmodifiableSet(EnumSet.copyOf(capabilities));
+    }
+
+    /**
+     * 附录一中的序号，从 1 开始。
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * BCP47 编码，即请求中 from、to 参数的取值。
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<Capability> getCapabilities() {
+        return capabilities;
+    }
+
+    public boolean has(Capability capability) {
+        return capabilities.contains(capability);
+    }
+
+    /**
+     * 作为目标语言时是否返回合成语音。
+     */
+    public boolean hasSpeech() {
+        return capabilities.contains(Capability.SPEECH_SYNTHESIS);
+    }
+
+    @Override
+    public String toString() {
+        return code + "(" + name + ")";
+    }
+}
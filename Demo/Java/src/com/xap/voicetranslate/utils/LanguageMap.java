@@ -1,6 +1,7 @@
 package com.xap.voicetranslate.utils;
 
 /**
+ * 按显示名查找语言的旧接口，查找由 {@link LanguageRegistry} 完成；数组同时是 LanguageRegistry 的数据来源。
  */
 public class LanguageMap {
     public static String asrnames[] = new String[]{
@@ -125,7 +126,7 @@ public class LanguageMap {
             "中文-普通话（大陆）",
             "日语",
     };
-    private static String asrcode[] = new String[]{
+    static final String asrcode[] = new String[]{
             "af-ZA", "am-ET", "hy-AM", "az-AZ", "id-ID", "ms-MY", "bn-BD", "bn-IN",
             "ca-ES", "cs-CZ", "da-DK", "de-DE",
             "en-AU", "en-CA", "en-GH", "en-GB", "en-IN", "en-IE", "en-KE", "en-NZ",
@@ -136,7 +137,7 @@ public class LanguageMap {
             "fil-PH","fr-CA", "fr-FR", "gl-ES", "ka-GE", "gu-IN", "hr-HR", "zu-ZA",
             "is-IS", "it-IT", "jv-ID", "kn-IN", "km-KH", "lo-LA", "lv-LV", "lt-LT",
             "hu-HU", "ml-IN", "mr-IN", "nl-NL", "ne-NP", "nb-NO", "pl-PL", "pt-BR",
-            "pt-PT", "ro-RO", "si-LK", "sk-SK", "sl-SL", "su-ID", "sw-TZ", "sw-KE",
+            "pt-PT", "ro-RO", "si-LK", "sk-SK", "sl-SI", "su-ID", "sw-TZ", "sw-KE",
             "fi-FI", "sv-SE", "ta-IN", "ta-SG", "ta-LK", "ta-MY", "te-IN", "vi-VN",
             "tr-TR", "ur-PK", "ur-IN", "el-GR", "bg-BG", "ru-RU", "sr-RS", "uk-UA",
             "he-IL",
@@ -146,33 +147,24 @@ public class LanguageMap {
             "zh-TW", "yue-Hant-HK", "zh-HK", "zh",
             "ja-JP"};
 
-    private static int nospeech[] = new int[]{
+    static final int nospeech[] = new int[]{//没有合成语音的语言序号
             48, 51, 55, 58, 60, 61, 77};
 
+    /**
+     * @return 附录一中的序号，从 1 开始，不支持时返回 0
+     */
     public static int getASR(String name){
-        for (int i = 0; i< asrnames.length; i++){
-            if (asrnames[i].equals(name)){
-                return i+1;
-            }
-        }
-        return 0;
+        Language language = LanguageRegistry.getDefault().findByName(name);
+        return language != null ? language.getIndex() : 0;
     }
 
     public static String getASRCode(String name){
-        for (int i = 0; i< asrnames.length; i++){
-            if (asrnames[i].equals(name)){
-                return asrcode[i];
-            }
-        }
-        return "";
+        Language language = LanguageRegistry.getDefault().findByName(name);
+        return language != null ? language.getCode() : "";
     }
 
     public static boolean noSpeech(int index){
-        for (int i = 0; i< nospeech.length; i++){
-            if (nospeech[i] == index){
-                return true;
-            }
-        }
-        return false;
+        Language language = LanguageRegistry.getDefault().get(index);
+        return language != null && !language.hasSpeech();
     }
 }
@@ -0,0 +1,113 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 支持的语言表，启动时构建一次，之后只读：按 BCP47 编码、别名、显示名和序号查找均为哈希查找。
+ * 编码查找不区分大小写，下划线视同连字符，如 en_us 与 en-US 等价。
+ */
+public final class LanguageRegistry {
+    //常见的等价写法，以及旧版本使用过的编码
+    private static final String[][] ALIASES = {
+            {"zh", "zh-CN"}, {"zh", "zh-Hans"}, {"zh", "zh-Hans-CN"}, {"zh", "cmn-Hans-CN"},
+            {"zh-TW", "zh-Hant-TW"}, {"zh-TW", "cmn-Hant-TW"},
+            {"zh-HK", "cmn-Hant-HK"}, {"yue-Hant-HK", "yue-HK"},
+            {"sl-SI", "sl-SL"}, {"he-IL", "iw-IL"}, {"fil-PH", "tl-PH"},
+    };
+    private static final LanguageRegistry DEFAULT = new LanguageRegistry();//在 ALIASES 之后初始化
+
+    private final List<Language> languages;
+    private final Map<String, Language> byCode = new HashMap<>();//键为规范化后的编码
+    private final Map<String, Language> byName = new HashMap<>();
+
+    private LanguageRegistry() {
+        String[] names = LanguageMap.asrnames;
+        String[] codes = LanguageMap.asrcode;
+        List<Language> list = new ArrayList<>(codes.length);
+        for (int i = 0; i < codes.length; i++) {
+            EnumSet<Language.Capability> capabilities = EnumSet.of(Language.Capability.RECOGNITION,
+                    Language.Capability.TRANSLATION);
+            if (!isNoSpeech(i + 1)) {
+                capabilities.add(Language.Capability.SPEECH_SYNTHESIS);
+            }
+            Language language = new Language(i + 1, codes[i], names[i], capabilities);
+            list.add(language);
+            byCode.put(normalize(codes[i]), language);
+            byName.put(names[i], language);
+        }
+        for (String[] alias : ALIASES) {
+            byCode.putIfAbsent(normalize(alias[1]), byCode.get(normalize(alias[0])));
+        }
+        this.languages = Collections.unmodifiableList(list);
+    }
+
+    private static boolean isNoSpeech(int index) {
+        for (int i : LanguageMap.nospeech) {
+            if (i == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static LanguageRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    private static String normalize(String code) {
+        return code.trim().replace('_', '-').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 按 BCP47 编码或别名查找。
+     *
+     * @return 不支持时返回 null
+     */
+    public Language find(String code) {
+        return code == null ? null : byCode.get(normalize(code));
+    }
+
+    /**
+     * 按显示名（如 "英语-美国"）查找，不支持时返回 null。
+     */
+    public Language findByName(String name) {
+        return name == null ? null : byName.get(name);
+    }
+
+    /**
+     * 按附录一中的序号（从 1 开始）查找，不存在时返回 null。
+     */
+    public Language get(int index) {
+        return index >= 1 && index <= languages.size() ? languages.get(index - 1) : null;
+    }
+
+    /**
+     * 按附录一顺序排列的全部语言。
+     */
+    public List<Language> getLanguages() {
+        return languages;
+    }
+
+    /**
+     * 校验语言对。
+     *
+     * @return 支持时返回 null，否则返回错误说明
+     */
+    public String validate(String from, String to) {
+        Language source = find(from);
+        if (source == null || !source.has(Language.Capability.RECOGNITION)) {
+            return "Unsupported source language: " + from;
+        }
+        Language target = find(to);
+        if (target == null || !target.has(Language.Capability.TRANSLATION)) {
+            return "Unsupported target language: " + to;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,9 @@
+package com.xap.voicetranslate.utils;
+
+/**
+ * 日志输出，通过 {@link LogUtils#setBackend} 设置。message 已完成格式化和截断，error 可能为 null。
+ * 会在 OkHttp 读线程和上传线程上调用，实现不应阻塞。
+ */
+public interface LogBackend {
+    void log(LogLevel level, String message, Throwable error);
+}
@@ -0,0 +1,5 @@
+package com.xap.voicetranslate.utils;
+
+public enum LogLevel {
+    DEBUG, INFO, WARN, ERROR
+}
@@ -1,11 +1,153 @@
 package com.xap.voicetranslate.utils;
 
+import java.util.function.Supplier;
+
+import okio.ByteString;
+
+/**
+ * 日志工具，默认关闭。logOn 为 true 时输出全部级别，也可通过 {@link #setLevel} 只输出指定级别及以上的日志。
+ * 带参数和 {@link Supplier} 的重载在日志关闭时不做任何拼接；格式中的 {} 依次替换为参数，
+ * 过长的参数（如音频帧）按 {@link #setMaxArgLength} 截断。
+ * 默认由后台线程异步写到标准输出，不阻塞 OkHttp 读线程，可通过 {@link #setBackend} 替换，如 {@link Slf4jLogBackend}。
+ */
 public class LogUtils {
     private static final String TAG = "xap";
     public static boolean logOn = false;
+
+    private static volatile LogLevel level;//null 表示关闭
+    private static volatile LogBackend backend = new AsyncLogBackend(new StdoutLogBackend(TAG), 8192);
+    private static volatile int maxArgLength = 256;
+
+    /**
+     * 输出该级别及以上的日志，null 表示关闭（logOn 为 true 时仍全部输出）。
+     */
+    public static void setLevel(LogLevel level) {
+        LogUtils.level = level;
+    }
+
+    public static void setBackend(LogBackend backend) {
+        if (backend == null) {
+            throw new IllegalArgumentException("backend is null");
+        }
+        LogUtils.backend = backend;
+    }
+
+    /**
+     * 单个参数输出的最大字符数，默认 256，超出部分只保留长度。
+     */
+    public static void setMaxArgLength(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length < 0");
+        }
+        maxArgLength = length;
+    }
+
+    public static boolean isLoggable(LogLevel l) {
+        if (logOn) {
+            return true;
+        }
+        LogLevel min = level;
+        return min != null && l.compareTo(min) >= 0;
+    }
+
     public static void d(String detail){
-        if (logOn){
-            System.out.println(TAG+detail);
+        if (isLoggable(LogLevel.DEBUG)) {
+            backend.log(LogLevel.DEBUG, detail, null);
+        }
+    }
+
+    public static void d(String format, long arg) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            backend.log(LogLevel.DEBUG, format(format, arg, null, 1), null);
+        }
+    }
+
+    public static void d(String format, Object arg) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            backend.log(LogLevel.DEBUG, format(format, arg, null, 1), null);
+        }
+    }
+
+    public static void d(String format, Object arg1, Object arg2) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            backend.log(LogLevel.DEBUG, format(format, arg1, arg2, 2), null);
+        }
+    }
+
+    public static void d(Supplier<String> message) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            backend.log(LogLevel.DEBUG, message.get(), null);
+        }
+    }
+
+    public static void i(String format, Object arg) {
+        if (isLoggable(LogLevel.INFO)) {
+            backend.log(LogLevel.INFO, format(format, arg, null, 1), null);
+        }
+    }
+
+    public static void w(String message, Throwable error) {
+        if (isLoggable(LogLevel.WARN)) {
+            backend.log(LogLevel.WARN, message, error);
+        }
+    }
+
+    public static void w(String format, Object arg) {
+        if (isLoggable(LogLevel.WARN)) {
+            backend.log(LogLevel.WARN, format(format, arg, null, 1), null);
+        }
+    }
+
+    public static void w(String format, Object arg1, Object arg2) {
+        if (isLoggable(LogLevel.WARN)) {
+            backend.log(LogLevel.WARN, format(format, arg1, arg2, 2), null);
+        }
+    }
+
+    public static void w(String format, Object arg, Throwable error) {
+        if (isLoggable(LogLevel.WARN)) {
+            backend.log(LogLevel.WARN, format(format, arg, null, 1), error);
+        }
+    }
+
+    public static void e(String message, Throwable error) {
+        if (isLoggable(LogLevel.ERROR)) {
+            backend.log(LogLevel.ERROR, message, error);
+        }
+    }
+
+    private static String format(String format, Object arg1, Object arg2, int count) {
+        StringBuilder sb = new StringBuilder(format.length() + 32);
+        int start = 0, used = 0;
+        while (used < count) {
+            int at = format.indexOf("{}", start);
+            if (at < 0) {
+                break;
+            }
+            sb.append(format, start, at);
+            appendArg(sb, used == 0 ? arg1 : arg2);
+            start = at + 2;
+            used++;
+        }
+        return sb.append(format, start, format.length()).toString();
+    }
+
+    private static void appendArg(StringBuilder sb, Object arg) {//按 maxArgLength 截断，ByteString 只解码保留的部分
+        int max = maxArgLength;
+        if (arg instanceof ByteString) {
+            ByteString bytes = (ByteString) arg;
+            if (bytes.size() <= max) {
+                sb.append(bytes.utf8());
+            } else {
+                sb.append(bytes.substring(0, max).utf8()).append("...(").append(bytes.size()).append(" bytes)");
+            }
+            return;
+        }
+        String s = String.valueOf(arg);
+        if (s.length() <= max) {
+            sb.append(s);
+        } else {
+            sb.append(s, 0, max).append("...(").append(s.length()).append(" chars)");
         }
     }
 }
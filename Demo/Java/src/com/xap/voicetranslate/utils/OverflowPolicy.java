@@ -0,0 +1,19 @@
+package com.xap.voicetranslate.utils;
+
+/**
+ * 回调队列写满时的处理方式，见 {@link ComplexSpeech.Builder#callbackQueue(int, OverflowPolicy)}。
+ */
+public enum OverflowPolicy {
+    /**
+     * 阻塞读线程直到回调线程取走事件，不丢弃任何回调；回调持续过慢时服务端可能断开连接。
+     */
+    BLOCK,
+    /**
+     * 丢弃新到的中间结果（isFinal 为 false 的识别、翻译结果），其余回调照常排队。
+     */
+    DROP_PARTIALS,
+    /**
+     * 尚未回调的中间结果由同类的新中间结果替换，只回调最新的一条；队列满时同 DROP_PARTIALS。
+     */
+    COALESCE_PARTIALS
+}
@@ -0,0 +1,86 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 由调用方写入的音频源，内部为定长环形缓冲区。缓冲区写满时 write 会阻塞，直到上传线程取走数据。
+ */
+class PushAudioSource implements AudioSource {
+    private final byte[] ring;
+    private int head, size;
+    private boolean ended, closed;
+
+    PushAudioSource(int capacity) {
+        ring = new byte[capacity];
+    }
+
+    synchronized void write(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = awaitSpace(length);
+            int tail = (head + size) % ring.length;
+            n = Math.min(n, ring.length - tail);
+            System.arraycopy(data, offset, ring, tail, n);
+            size += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    synchronized void write(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            int n = awaitSpace(data.remaining());
+            int tail = (head + size) % ring.length;
+            n = Math.min(n, ring.length - tail);
+            data.get(ring, tail, n);
+            size += n;
+        }
+    }
+
+    private int awaitSpace(int wanted) throws IOException {
+        while (size == ring.length && !closed && !ended) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+        if (closed) {
+            throw new IOException("Session closed!");
+        }
+        if (ended) {
+            throw new IOException("Audio already ended!");
+        }
+        return Math.min(wanted, ring.length - size);
+    }
+
+    synchronized void end() {
+        ended = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized int read(byte[] buffer, int offset, int length) {
+        if (size == 0) {
+            return ended || closed ? -1 : 0;
+        }
+        int n = Math.min(length, size);
+        int first = Math.min(n, ring.length - head);
+        System.arraycopy(ring, head, buffer, offset, first);
+        if (n > first) {
+            System.arraycopy(ring, 0, buffer, offset + first, n - first);
+        }
+        head = (head + n) % ring.length;
+        size -= n;
+        notifyAll();
+        return n;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+}
@@ -0,0 +1,140 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多相加窗 sinc 重采样（单声道 float），按有理数比 L/M 流式处理。
+ * 每个输出样本只计算一组 taps 点积；各相位的滤波系数按 (输入采样率, 输出采样率) 缓存，所有会话共享。
+ * 实例只能在一个线程上使用。
+ */
+final class Resampler {
+    private static final int ZERO_CROSSINGS = 16;//每侧的 sinc 过零点数
+    private static final double ROLLOFF = 0.95;//截止频率相对奈奎斯特频率的比例
+    private static final int MAX_PHASES = 1024;//L 过大时相位量化到该精度
+    private static final ConcurrentHashMap<Long, float[][]> KERNELS = new ConcurrentHashMap<>();
+
+    private final int up, down;//L、M
+    private final float[][] kernel;//[相位][tap]
+    private final int taps, half;
+
+    //尚未用完的输入样本
+    private float[] history = new float[4096];
+    private int count;
+    private int position;//下一个输出样本对应的输入位置（整数部分，相对 history）
+    private int phase;//小数部分 = phase / up
+
+    Resampler(int inRate, int outRate) {
+        int g = gcd(inRate, outRate);
+        this.up = outRate / g;
+        this.down = inRate / g;
+        this.kernel = KERNELS.computeIfAbsent((long) inRate << 32 | outRate, k -> design(up, down));
+        this.taps = kernel[0].length;
+        this.half = taps / 2;
+        this.position = half - 1;//起始处补零，第一个输出对齐第一个输入样本
+        this.count = half - 1;
+    }
+
+    /**
+     * 输入 n 个样本后最多产生的输出样本数。
+     */
+    int maxOutput(int n) {
+        return (int) (((long) count + n + half) * up / down) + 2;
+    }
+
+    /**
+     * 处理一段输入，输出写入 out（容量不小于 {@link #maxOutput(int)}）。
+     *
+     * @return 输出的样本数
+     */
+    int process(float[] in, int n, float[] out) {
+        append(in, n);
+        return drain(out);
+    }
+
+    /**
+     * 输入结束：以零补齐尾部，输出剩余样本。
+     */
+    int flush(float[] out) {
+        float[] zeros = new float[half];
+        append(zeros, half);
+        return drain(out);
+    }
+
+    private void append(float[] in, int n) {
+        if (count + n > history.length) {
+            history = Arrays.copyOf(history, Math.max(count + n, history.length * 2));
+        }
+        System.arraycopy(in, 0, history, count, n);
+        count += n;
+    }
+
+    private int drain(float[] out) {
+        int produced = 0;
+        int phases = kernel.length;
+        while (position + half < count) {
+            int p = phases == up ? phase : (int) ((long) phase * phases / up);
+            float[] k = kernel[p];
+            int start = position - half + 1;
+            float sum = 0;
+            for (int j = 0; j < taps; j++) {
+                sum += history[start + j] * k[j];
+            }
+            out[produced++] = sum;
+            phase += down;
+            position += phase / up;
+            phase %= up;
+        }
+        int discard = Math.min(position - half + 1, count);//之前的样本不再需要
+        if (discard > 0) {
+            System.arraycopy(history, discard, history, 0, count - discard);
+            count -= discard;
+            position -= discard;
+        }
+        return produced;
+    }
+
+    /**
+     * 计算各相位的系数：tap j 对应输入偏移 j - (half - 1) - frac，每个相位归一化为直流增益 1。
+     */
+    private static float[][] design(int up, int down) {
+        double cutoff = Math.min(1.0, (double) up / down) * ROLLOFF;
+        int half = (int) Math.ceil(ZERO_CROSSINGS / cutoff);
+        int taps = half * 2;
+        int phases = Math.min(up, MAX_PHASES);
+        float[][] kernel = new float[phases][taps];
+        for (int p = 0; p < phases; p++) {
+            double frac = (double) p / phases;
+            double sum = 0;
+            double[] h = new double[taps];
+            for (int j = 0; j < taps; j++) {
+                double x = j - (half - 1) - frac;
+                double w = x / half;//窗函数的归一化位置 [-1, 1]
+                double window = Math.abs(w) >= 1 ? 0 : 0.42 + 0.5 * Math.cos(Math.PI * w) + 0.08 * Math.cos(2 * Math.PI * w);
+                h[j] = cutoff * sinc(cutoff * x) * window;
+                sum += h[j];
+            }
+            for (int j = 0; j < taps; j++) {
+                kernel[p][j] = (float) (h[j] / sum);
+            }
+        }
+        return kernel;
+    }
+
+    private static double sinc(double x) {
+        if (x == 0) {
+            return 1;
+        }
+        double px = Math.PI * x;
+        return Math.sin(px) / px;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,395 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 翻译结果缓存：以上传 PCM（转换为上传格式后）和 (源语言, 目标语言, 采样率) 的 SHA-256 为键，
+ * 保存最终识别、最终翻译和合成音频。相同的音频再次翻译时不建立连接，直接按原顺序回调缓存的结果，
+ * 适合反复翻译固定提示音、固定播报等场景。通过 {@link ComplexSpeech.Builder#resultCache(ResultCache)} 开启，
+ * 只对文件会话生效；可被多个客户端共享。
+ * 内存层按 LRU 淘汰，磁盘层（可选）每个结果一个文件，写入时同时写入磁盘，按最近访问时间淘汰，重启后仍然有效。
+ * 只缓存未报错结束的会话，中间结果不缓存也不回放。
+ */
+public final class ResultCache implements ResultCacheMBean {
+    private static final String SUFFIX = ".xrc";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final long maxMemoryBytes;
+    private final File directory;//未开启磁盘层时为 null
+    private final long maxDiskBytes;
+
+    //以下由 this 保护，文件读写在锁外进行
+    private final LinkedHashMap<String, CachedResult> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);//键 -> 文件大小
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder memoryEvictions = new LongAdder();
+    private final LongAdder diskEvictions = new LongAdder();
+
+    private ResultCache(Builder builder) {
+        this.maxMemoryBytes = builder.maxMemoryBytes;
+        this.directory = builder.directory;
+        this.maxDiskBytes = builder.maxDiskBytes;
+        if (directory != null) {
+            loadIndex();
+        }
+    }
+
+    /**
+     * 扫描缓存目录建立索引，按文件修改时间恢复访问顺序，删除上次未写完的临时文件。
+     */
+    private void loadIndex() {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create cache directory: " + directory);
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> entries = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            } else if (file.getName().endsWith(SUFFIX)) {
+                entries.add(file);
+            }
+        }
+        entries.sort(Comparator.comparingLong(File::lastModified));
+        List<String> victims;
+        synchronized (this) {
+            for (File file : entries) {
+                String name = file.getName();
+                long length = file.length();
+                disk.put(name.substring(0, name.length() - SUFFIX.length()), length);
+                diskBytes += length;
+            }
+            victims = evictDisk(null);
+        }
+        deleteFiles(victims);
+    }
+
+    /**
+     * 计算缓存键，读完 pcm 但不关闭。
+     *
+     * @param pcm 上传格式的 PCM，即转换格式之后、静音过滤之前的音频
+     */
+    static String key(String from, String to, int rate, AudioSource pcm) throws IOException {
+        MessageDigest digest = EncryptUtil.sha256();
+        digest.update((from + "|" + to + "|" + rate + "|").getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[16 * 1024];
+        int len;
+        while ((len = pcm.read(buffer, 0, buffer.length)) != -1) {
+            digest.update(buffer, 0, len);
+        }
+        return EncryptUtil.byte2Hex(digest.digest());
+    }
+
+    /**
+     * 查找结果，磁盘层命中时同时放入内存层。
+     *
+     * @return 未命中时返回 null
+     */
+    CachedResult get(String key) {
+        synchronized (this) {
+            CachedResult result = memory.get(key);
+            if (result != null) {
+                memoryHits.increment();
+                return result;
+            }
+            if (directory == null || disk.get(key) == null) {
+                misses.increment();
+                return null;
+            }
+        }
+        File file = file(key);
+        CachedResult result;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            result = CachedResult.readFrom(in);
+        } catch (IOException e) {//文件损坏或已被删除
+            LogUtils.w("read cache entry failed {}", file, e);
+            synchronized (this) {
+                Long length = disk.remove(key);
+                if (length != null) {
+                    diskBytes -= length;
+                }
+            }
+            file.delete();
+            misses.increment();
+            return null;
+        }
+        diskHits.increment();
+        try {
+            Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis()));//重启后按访问时间淘汰
+        } catch (IOException e) {
+            LogUtils.d("touch cache entry failed {}", file);
+        }
+        synchronized (this) {
+            putMemory(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * 保存结果，超过某一层容量的结果不放入该层。
+     */
+    void put(String key, CachedResult result) {
+        stores.increment();
+        synchronized (this) {
+            putMemory(key, result);
+        }
+        if (directory != null && result.size() <= maxDiskBytes) {
+            writeDisk(key, result);
+        }
+    }
+
+    /**
+     * 单个结果的字节数上限，超过时会话不再记录结果。
+     */
+    long maxEntryBytes() {
+        return Math.max(maxMemoryBytes, directory != null ? maxDiskBytes : 0);
+    }
+
+    private void putMemory(String key, CachedResult result) {//持有 this
+        CachedResult old = memory.remove(key);
+        if (old != null) {
+            memoryBytes -= old.size();
+        }
+        if (result.size() > maxMemoryBytes) {
+            return;
+        }
+        memory.put(key, result);
+        memoryBytes += result.size();
+        for (Iterator<CachedResult> it = memory.values().iterator(); memoryBytes > maxMemoryBytes && it.hasNext(); ) {
+            memoryBytes -= it.next().size();
+            it.remove();
+            memoryEvictions.increment();
+        }
+    }
+
+    /**
+     * 先写临时文件再改名，读取方不会看到写了一半的文件。
+     */
+    private void writeDisk(String key, CachedResult result) {
+        File file = file(key);
+        Path temp = null;
+        long length;
+        try {
+            temp = Files.createTempFile(directory.toPath(), key, TEMP_SUFFIX);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                result.writeTo(out);
+            }
+            length = Files.size(temp);
+            try {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LogUtils.w("write cache entry failed {}", file, e);
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+            return;
+        }
+        List<String> victims;
+        synchronized (this) {
+            Long old = disk.put(key, length);
+            diskBytes += length - (old != null ? old : 0);
+            victims = evictDisk(key);
+        }
+        deleteFiles(victims);
+    }
+
+    /**
+     * 按最近访问顺序淘汰磁盘层，直到不超过容量，持有 this。
+     *
+     * @param keep 刚写入的键，不淘汰
+     * @return 需要删除的键
+     */
+    private List<String> evictDisk(String keep) {
+        List<String> victims = new ArrayList<>();
+        for (Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator(); diskBytes > maxDiskBytes && it.hasNext(); ) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            diskBytes -= entry.getValue();
+            it.remove();
+            victims.add(entry.getKey());
+            diskEvictions.increment();
+        }
+        return victims;
+    }
+
+    private void deleteFiles(List<String> keys) {
+        for (String key : keys) {
+            File file = file(key);
+            if (!file.delete() && file.exists()) {
+                LogUtils.w("delete cache entry failed {}", file);
+            }
+        }
+    }
+
+    private File file(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    /**
+     * 清空内存层和磁盘层，统计数据不清零。
+     */
+    public void clear() {
+        List<String> victims;
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+            victims = new ArrayList<>(disk.keySet());
+            disk.clear();
+            diskBytes = 0;
+        }
+        if (directory != null) {
+            deleteFiles(victims);
+        }
+    }
+
+    /**
+     * 内存层和磁盘层命中的总次数。
+     */
+    @Override
+    public long getHitCount() {
+        return memoryHits.sum() + diskHits.sum();
+    }
+
+    @Override
+    public long getMemoryHitCount() {
+        return memoryHits.sum();
+    }
+
+    @Override
+    public long getDiskHitCount() {
+        return diskHits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 命中率，尚无查找时为 -1。
+     */
+    @Override
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + misses.sum();
+        return total == 0 ? -1 : hits / (double) total;
+    }
+
+    /**
+     * 写入缓存的结果数，含超过容量而未保存的。
+     */
+    @Override
+    public long getStoreCount() {
+        return stores.sum();
+    }
+
+    @Override
+    public long getMemoryEvictionCount() {
+        return memoryEvictions.sum();
+    }
+
+    @Override
+    public long getDiskEvictionCount() {
+        return diskEvictions.sum();
+    }
+
+    @Override
+    public synchronized int getMemoryEntries() {
+        return memory.size();
+    }
+
+    @Override
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    @Override
+    public synchronized int getDiskEntries() {
+        return disk.size();
+    }
+
+    @Override
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache{hits=" + getMemoryHitCount() + "+" + getDiskHitCount() + ", misses=" + getMissCount()
+                + ", memory=" + getMemoryEntries() + "/" + getMemoryBytes() + "B"
+                + ", disk=" + getDiskEntries() + "/" + getDiskBytes() + "B"
+                + ", evictions=" + getMemoryEvictionCount() + "+" + getDiskEvictionCount() + '}';
+    }
+
+    public static class Builder {
+        private long maxMemoryBytes = 64L * 1024 * 1024;
+        private File directory;
+        private long maxDiskBytes;
+
+        /**
+         * 内存层容量（按结果的文本和音频字节数估算），默认 64MB；0 表示只使用磁盘层。
+         */
+        public Builder memory(long maxBytes) {
+            if (maxBytes < 0) {
+                throw new IllegalArgumentException("maxBytes < 0");
+            }
+            this.maxMemoryBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * 开启磁盘层，结果保存在 directory 下，总大小不超过 maxBytes；默认不开启。
+         * 同一目录不要同时被多个缓存实例使用。
+         */
+        public Builder disk(File directory, long maxBytes) {
+            if (directory == null) {
+                throw new IllegalArgumentException("directory is null");
+            } else if (maxBytes < 1) {
+                throw new IllegalArgumentException("maxBytes < 1");
+            }
+            this.directory = directory;
+            this.maxDiskBytes = maxBytes;
+            return this;
+        }
+
+        public ResultCache build() {
+            if (maxMemoryBytes == 0 && directory == null) {
+                throw new IllegalArgumentException("Both memory and disk are disabled");
+            }
+            return new ResultCache(this);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.xap.voicetranslate.utils;
+
+/**
+ * {@link ResultCache} 的 JMX 接口，开启 {@link ComplexSpeech.Builder#jmx(boolean)} 后随客户端注册，
+ * ObjectName 为 {@code com.xap.voicetranslate:type=ResultCache,id=N}。
+ */
+public interface ResultCacheMBean {
+    long getHitCount();
+
+    long getMemoryHitCount();
+
+    long getDiskHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getStoreCount();
+
+    long getMemoryEvictionCount();
+
+    long getDiskEvictionCount();
+
+    int getMemoryEntries();
+
+    long getMemoryBytes();
+
+    int getDiskEntries();
+
+    long getDiskBytes();
+}
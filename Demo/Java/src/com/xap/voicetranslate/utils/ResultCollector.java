@@ -0,0 +1,121 @@
+package com.xap.voicetranslate.utils;
+
+import com.xap.voicetranslate.Constant;
+import com.xap.voicetranslate.callback.AudioChunk;
+import com.xap.voicetranslate.callback.AudioSegment;
+import com.xap.voicetranslate.callback.STSCallback;
+import com.xap.voicetranslate.callback.STSException;
+import com.xap.voicetranslate.callback.SessionResult;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 汇总会话的最终结果：作为 {@link STSCallback} 传给 startSTS / startStream，会话正常结束时
+ * {@link #result()} 以 {@link SessionResult} 完成，出错时以 {@link STSException} 异常完成并取消会话。
+ * 取消返回的 future 同样会取消会话。回调都在同一会话的回调线程上串行执行，收集过程无需加锁。
+ */
+public final class ResultCollector implements STSCallback, SessionBound {
+    private final boolean keepAudio;
+    private final CompletableFuture<SessionResult> result = new CompletableFuture<>();
+
+    private final List<String> recognitions = new ArrayList<>();
+    private final List<String> translations = new ArrayList<>();
+    private final List<AudioSegment> segments = new ArrayList<>();
+    private final ByteArrayOutputStream audio = new ByteArrayOutputStream();
+    private final byte[] copy = new byte[4096];
+    private long lostMillis;
+    private volatile STSSession session;
+
+    /**
+     * 只收集文本和音频分段，不保留合成音频。
+     */
+    public ResultCollector() {
+        this(false);
+    }
+
+    /**
+     * @param keepAudio 是否把合成音频拼接到 {@link SessionResult#getAudio()}
+     */
+    public ResultCollector(boolean keepAudio) {
+        this.keepAudio = keepAudio;
+    }
+
+    public CompletableFuture<SessionResult> result() {
+        return result;
+    }
+
+    @Override
+    public void bind(STSSession session) {
+        this.session = session;
+        result.whenComplete((r, t) -> {
+            if (t != null) {//取消 future 或会话报错（如 30003）时不再继续上传和接收
+                session.cancel();
+            }
+        });
+    }
+
+    @Override
+    public void onRecognizeSuccess(boolean isFinal, String recognizeResult) {
+        if (isFinal) {
+            recognitions.add(recognizeResult);
+        }
+    }
+
+    @Override
+    public void onTranslateSuccess(boolean isFinal, String translateResult) {
+        if (isFinal) {
+            translations.add(translateResult);
+        }
+    }
+
+    @Override
+    public void onAudio(AudioChunk chunk) {
+        try {
+            if (keepAudio && !result.isDone()) {
+                ByteBuffer buffer = chunk.buffer();
+                while (buffer.hasRemaining()) {
+                    int len = Math.min(copy.length, buffer.remaining());
+                    buffer.get(copy, 0, len);
+                    audio.write(copy, 0, len);
+                }
+            }
+        } finally {
+            chunk.release();
+        }
+    }
+
+    @Override
+    public void onSegment(AudioSegment segment) {
+        segments.add(segment);
+    }
+
+    @Override
+    public void onAudioLost(long lostMillis) {
+        this.lostMillis += lostMillis;
+    }
+
+    @Override
+    public void onFinish(String voicePath) {
+    }
+
+    @Override
+    public void onOpen() {
+    }
+
+    @Override
+    public void onError(int errorCode, String error) {
+        result.completeExceptionally(new STSException(errorCode, error));
+    }
+
+    @Override
+    public void onComplete() {
+        STSSession bound = session;
+        int rate = bound != null ? bound.getSampleRate() : Constant.AUDIO_RATE;
+        long suppressedMillis = bound != null ? bound.getSuppressedMillis() : 0;
+        result.complete(new SessionResult(recognitions, translations, segments, audio.toByteArray(), rate,
+                lostMillis, suppressedMillis));
+    }
+}
@@ -0,0 +1,880 @@
+package com.xap.voicetranslate.utils;
+
+import com.xap.voicetranslate.callback.AudioSegment;
+import com.xap.voicetranslate.callback.STSCallback;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * 单次语音翻译会话，由 {@link ComplexSpeech#startSTS} 创建并返回。
+ * 每个会话持有自己的文件、语言和回调，互不影响，可通过 {@link #cancel()} 单独取消。
+ * 由 {@link ComplexSpeech#startStream} 创建的流式会话通过 {@link #write} 持续写入 PCM，写完后调用 {@link #end()}。
+ * 服务端单个连接最多处理 3 分钟音频，更长的音频会在静音处（或达到上限时）切换到新的连接继续上传（见 {@link Leg}），
+ * 各段的结果按顺序拼接后回调，对调用方仍是一个连续的会话；上传中的连接意外断开时自动重连。
+ */
+public class STSSession {
+    private static final int MAX_RECONNECTS = 3;
+
+    //sts
+    private final ComplexSpeech owner;
+    private final int id;
+    private final String fromLanguage;
+    private final String toLanguage;
+    private final String recordFile, voiceFile;
+    private final PushAudioSource input;
+    private final int rate;//配置的上传采样率，INPUT_RATE 时按输入音频的采样率
+    private final boolean unpaced;//不限速上传：流式会话数据到达即发送，批量翻译尽快发送
+    private final boolean speech;//目标语言是否返回合成语音
+    private volatile AudioFormat format;//输入格式，文件会话在连接前读取文件头确定
+    private volatile int sampleRate;//上传和合成音频的采样率
+    private volatile boolean wavFile;
+    private final long startTime = System.currentTimeMillis();
+
+    //callbacks
+    private final STSCallback stsCallback;
+    private final CacheRecorder recorder;//未开启结果缓存或不是文件会话时为 null
+
+    //metrics，未开启时为 null
+    private final SessionMetrics metrics;
+
+    //回调在回调线程上按顺序执行，不占用读线程
+    private final CallbackDispatcher dispatcher;
+    private int segmentCount;//只在回调中访问
+
+    //state
+    private volatile boolean cancelled;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    //legs，以下字段均由 order 保护；回调也在 order 内提交，保证各段结果按顺序回调
+    private final Object order = new Object();
+    private final ArrayDeque<Leg> legs = new ArrayDeque<>();//尚未回调完毕的连接，队首的结果直接回调，其余暂存
+    private Leg uploading;//正在上传音频的连接
+    private Leg spare;//预先建立的下一段连接
+    private AudioSource source;
+    private int legCount, reconnects;
+    private boolean opened;
+
+    STSSession(ComplexSpeech owner, int id, String fromLanguage, String toLanguage, String recordFile,
+               AudioFormat format, int rate, boolean unpaced, String voiceFile, STSCallback stsCallback) {
+        this(owner, id, fromLanguage, toLanguage, recordFile, format, null, rate, unpaced, voiceFile, stsCallback);
+    }
+
+    STSSession(ComplexSpeech owner, int id, String fromLanguage, String toLanguage, PushAudioSource input,
+               AudioFormat format, int rate, boolean unpaced, String voiceFile, STSCallback stsCallback) {
+        this(owner, id, fromLanguage, toLanguage, null, format, input, rate, unpaced, voiceFile, stsCallback);
+    }
+
+    private STSSession(ComplexSpeech owner, int id, String fromLanguage, String toLanguage, String recordFile,
+                       AudioFormat format, PushAudioSource input, int rate, boolean unpaced, String voiceFile,
+                       STSCallback stsCallback) {
+        this.owner = owner;
+        this.id = id;
+        this.fromLanguage = fromLanguage;
+        this.toLanguage = toLanguage;
+        this.recordFile = recordFile;
+        this.input = input;
+        this.format = format;
+        this.rate = rate;
+        this.unpaced = unpaced;
+        this.speech = owner.hasSpeech(toLanguage);
+        this.voiceFile = voiceFile;
+        ResultCache cache = owner.resultCache();
+        this.recorder = cache != null && recordFile != null ? new CacheRecorder(cache, stsCallback) : null;
+        this.stsCallback = recorder != null ? recorder : stsCallback;
+        this.metrics = owner.newSessionMetrics(id);
+        this.dispatcher = owner.newDispatcher(metrics);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getFromLanguage() {
+        return fromLanguage;
+    }
+
+    public String getToLanguage() {
+        return toLanguage;
+    }
+
+    /**
+     * 上传和合成音频的采样率，连接建立前为 0。
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    String getVoiceFile() {
+        return voiceFile;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 静音过滤未上传的静音时长（毫秒），未开启 {@link ComplexSpeech.Builder#suppressSilence} 时为 0。
+     * 不依赖指标采集，上传过程中读取为当前值。
+     */
+    public long getSuppressedMillis() {
+        AudioSource audioSource;
+        synchronized (order) {
+            audioSource = source;
+        }
+        return audioSource instanceof SilenceFilter ? ((SilenceFilter) audioSource).suppressedMillis() : 0;
+    }
+
+    /**
+     * 会话指标，未开启指标采集时为 null。
+     */
+    public SessionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 写入一段 PCM 音频，缓冲区已满时阻塞。
+     *
+     * @throws IOException 会话已取消或已调用 {@link #end()}
+     */
+    public void write(byte[] data) throws IOException {
+        write(data, 0, data.length);
+    }
+
+    public void write(byte[] data, int offset, int length) throws IOException {
+        streamInput().write(data, offset, length);
+    }
+
+    public void write(ByteBuffer data) throws IOException {
+        streamInput().write(data);
+    }
+
+    /**
+     * 音频写入结束，剩余数据发送完毕后发送 audio/end。
+     */
+    public void end() {
+        streamInput().end();
+    }
+
+    private PushAudioSource streamInput() {
+        if (input == null) {
+            throw new IllegalStateException("Not a streaming session!");
+        }
+        return input;
+    }
+
+    void pump(InputStream in) {//从输入流读取音频写入缓冲区
+        byte[] buffer = new byte[8192];
+        try {
+            int len;
+            while ((len = in.read(buffer)) != -1 && !cancelled) {
+                input.write(buffer, 0, len);
+            }
+            input.end();
+        } catch (IOException e) {
+            LogUtils.w("read input failed", e);
+            if (!cancelled) {
+                fail(30002, e.getMessage());
+            }
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                LogUtils.w("close input failed", e);
+            }
+        }
+    }
+
+    /**
+     * 取消会话：停止上传并断开所有连接，之后不再触发任何回调，尚未执行的回调也会丢弃。
+     */
+    public void cancel() {
+        dispatcher.cancel();//先唤醒可能持有 order 等待回调队列的线程
+        stop();
+    }
+
+    private void stop() {
+        cancelled = true;
+        if (input != null) {
+            input.close();
+        }
+        List<Leg> active;
+        AudioSource audioSource;
+        synchronized (order) {
+            active = new ArrayList<>(legs);
+            for (Leg leg : new Leg[]{spare, uploading}) {
+                if (leg != null && !active.contains(leg)) {
+                    active.add(leg);
+                }
+            }
+            audioSource = source;
+        }
+        for (Leg leg : active) {
+            leg.cancel();
+        }
+        if (audioSource != null) {
+            try {
+                audioSource.close();
+            } catch (IOException e) {
+                LogUtils.w("close audio source failed", e);
+            }
+        }
+        finish();
+    }
+
+    private void reportError(int errorCode, String error) {
+        if (!cancelled) {
+            if (metrics != null) {
+                metrics.error(errorCode);
+            }
+            dispatcher.post(CallbackDispatcher.OTHER, () -> stsCallback.onError(errorCode, error));
+        }
+    }
+
+    /**
+     * 报告错误并结束会话，已排队的回调（含 onError）继续执行。
+     */
+    private void fail(int errorCode, String error) {
+        synchronized (order) {
+            reportError(errorCode, error);
+        }
+        dispatcher.shutdown();
+        stop();
+    }
+
+    /**
+     * 会话结束（完成、出错或取消）：记录指标，已排队的回调执行完毕后释放客户端的保活线程。可重复调用。
+     */
+    private void finish() {
+        if (metrics != null && metrics.end()) {
+            owner.metricsListener().onSessionEnd(metrics);
+        }
+        if (finished.compareAndSet(false, true)) {
+            dispatcher.whenDrained(owner::sessionEnded);
+        }
+    }
+
+    void connect() {
+        LogUtils.d("startsend {}", id);
+        if (cancelled){
+            return;
+        }
+        if (format == null) {//未指定格式的文件按文件头判断，不是 WAV 时视为默认格式的 PCM
+            try {
+                AudioFormat header = FileAudioSource.readHeader(recordFile);
+                wavFile = header != null;
+                format = wavFile ? header : AudioFormat.DEFAULT;
+            } catch (IOException e) {
+                LogUtils.w("read audio header failed", e);
+                fail(30002, e.getMessage());
+                return;
+            }
+        }
+        sampleRate = ComplexSpeech.uploadRate(rate, format);
+        if (recorder != null && replayCached()) {
+            return;
+        }
+        if (metrics != null) {
+            metrics.connectStarted();
+        }
+        Leg leg;
+        synchronized (order) {
+            leg = newLeg();
+            uploading = leg;
+        }
+        leg.connect();
+    }
+
+    /**
+     * 按上传格式的 PCM 查找结果缓存：命中时回放缓存的结果，不建立连接；未命中时记录本次结果。
+     *
+     * @return 是否命中
+     */
+    private boolean replayCached() {
+        String key;
+        try (AudioSource in = new FileAudioSource(recordFile, wavFile)) {
+            AudioSource pcm = format.isUploadFormat(sampleRate) ? in : new FormatConverter(in, format, sampleRate);
+            key = ResultCache.key(fromLanguage, toLanguage, sampleRate, pcm);
+        } catch (IOException e) {//按未命中处理，读取错误由上传时报告
+            LogUtils.w("hash audio failed", e);
+            return false;
+        }
+        CachedResult cached = owner.resultCache().get(key);
+        if (cached == null) {
+            recorder.record(key, sampleRate);
+            return false;
+        }
+        LogUtils.d("cache hit {} {}", id, key);
+        replay(cached);
+        return true;
+    }
+
+    /**
+     * 按原顺序回调缓存的结果：音频按缓冲池大小分段回调，指定了输出目录时同样逐句写出 WAV 文件。
+     */
+    private void replay(CachedResult cached) {
+        int rate = cached.getSampleRate();
+        int segmentIndex = 0;
+        try {
+            synchronized (order) {
+                if (cancelled) {
+                    return;
+                }
+                dispatcher.post(CallbackDispatcher.OTHER, stsCallback::onOpen);
+                for (CachedResult.Event event : cached.getEvents()) {
+                    if (cancelled) {
+                        return;
+                    }
+                    String text = event.text;
+                    if (event.type == CachedResult.ORIGIN) {
+                        dispatcher.post(CallbackDispatcher.OTHER, () -> stsCallback.onRecognizeSuccess(true, text));
+                    } else if (event.type == CachedResult.TRANSLATION) {
+                        dispatcher.post(CallbackDispatcher.OTHER, () -> stsCallback.onTranslateSuccess(true, text));
+                    } else if (event.type == CachedResult.SEGMENT && speech) {
+                        replaySegment(segmentIndex++, text, event.audio, rate);
+                    }
+                }
+                dispatcher.post(CallbackDispatcher.OTHER, stsCallback::onComplete);
+            }
+        } catch (IOException e) {
+            LogUtils.w("replay cache failed", e);
+            fail(30003, e.getMessage());
+            return;
+        }
+        finish();
+    }
+
+    private void replaySegment(int index, String translation, byte[] audio, int rate) throws IOException {//持有 order
+        AudioBufferPool audioPool = owner.audioPool();
+        String path = null;
+        if (!TextUtils.isEmpty(voiceFile)) {
+            WavFileSink voiceOut = new WavFileSink(new File(voiceFile + startTime + "-" + id + "-" + index + ".wav"), rate);
+            try {
+                voiceOut.write(audio, 0, audio.length);
+            } catch (IOException e) {
+                voiceOut.abort();
+                throw e;
+            }
+            path = voiceOut.finish();
+        }
+        for (int offset = 0; offset < audio.length; ) {
+            int length = Math.min(64 * 1024, audio.length - offset);
+            byte[] buffer = audioPool.acquire(length);
+            System.arraycopy(audio, offset, buffer, 0, length);
+            offset += length;
+            dispatcher.post(CallbackDispatcher.OTHER, () -> stsCallback.onAudio(audioPool.chunk(buffer, length)));
+        }
+        String voicePath = path;
+        dispatcher.post(CallbackDispatcher.OTHER, () -> stsCallback.onFinish(voicePath));
+        dispatcher.post(CallbackDispatcher.OTHER, () -> stsCallback.onSegment(new AudioSegment(index, translation,
+                voicePath, audio.length, rate)));
+    }
+
+    private Leg newLeg() {//持有 order
+        Leg leg = new Leg(legCount++);
+        legs.add(leg);
+        return leg;
+    }
+
+    /**
+     * 当前段的音频快到上限，提前建立下一段连接。
+     */
+    void prepareNextLeg(Leg current) {
+        Leg next;
+        synchronized (order) {
+            if (cancelled || spare != null || uploading != current) {
+                return;
+            }
+            next = newLeg();
+            spare = next;
+        }
+        next.connect();
+    }
+
+    /**
+     * 当前段结束上传，后续音频改由下一段连接发送；下一段连接尚未建立时在建立后开始上传。
+     */
+    void rotate(Leg current) {
+        Leg next;
+        boolean connect, start;
+        synchronized (order) {
+            current.rotated = true;
+            if (cancelled || uploading != current) {
+                return;
+            }
+            connect = spare == null;
+            next = connect ? newLeg() : spare;
+            spare = null;
+            uploading = next;
+            start = next.open;
+        }
+        if (connect) {
+            next.connect();
+        } else if (start) {
+            startUpload(next);
+        }
+    }
+
+    /**
+     * 音频已全部读完，该段为最后一段，未使用的预建连接直接关闭。
+     */
+    void inputEnded(Leg current) {
+        Leg unused;
+        synchronized (order) {
+            current.last = true;
+            unused = spare;
+            spare = null;
+            if (unused != null) {
+                unused.done = true;
+                legs.remove(unused);
+            }
+        }
+        if (unused != null) {
+            unused.cancel();
+        }
+    }
+
+    /**
+     * 读取或发送音频失败：该段不再重连，报告一次错误并结束会话。
+     */
+    void uploadFailed(Leg leg, int errorCode, String error) {
+        synchronized (order) {
+            if (leg.done || cancelled) {
+                return;
+            }
+            leg.done = true;
+        }
+        fail(errorCode, error);
+    }
+
+    private void startUpload(Leg leg) {
+        try {
+            AudioSource audioSource;
+            synchronized (order) {
+                if (source == null) {
+                    source = owner.newSource(input != null ? input
+                            : new FileAudioSource(recordFile, wavFile), format,
+                            sampleRate, metrics);
+                }
+                audioSource = source;
+            }
+            if (metrics != null) {
+                metrics.legStarted();
+            }
+            AudioUploader audioUploader = owner.newUploader(this, leg, leg.webSocket, audioSource, unpaced);
+            leg.uploader = audioUploader;
+            audioUploader.start(owner.scheduler());//分帧上传，不阻塞读线程
+            if (cancelled) {
+                audioUploader.stop();
+            }
+        } catch (Exception e) {
+            LogUtils.w("start upload failed", e);
+            fail(30002, e.getMessage());
+        }
+    }
+
+    private void emit(Leg leg, Runnable task) {
+        emit(leg, CallbackDispatcher.OTHER, task);
+    }
+
+    /**
+     * 在 order 内提交回调：该段位于队首时直接交给回调队列，否则暂存，等前面的段全部提交后再提交。
+     */
+    private void emit(Leg leg, int kind, Runnable task) {
+        synchronized (order) {
+            if (cancelled) {
+                return;
+            }
+            if (legs.peekFirst() == leg) {
+                dispatcher.post(kind, task);
+            } else {
+                leg.pending.add(new CallbackDispatcher.Event(kind, task));
+            }
+        }
+    }
+
+    private void completeLeg(Leg leg) {
+        synchronized (order) {
+            leg.done = true;
+            reconnects = 0;
+            if (!leg.rotated) {//服务端在切换前结束了会话
+                leg.last = true;
+            }
+            if (legs.peekFirst() == leg) {
+                advance();
+            }
+        }
+    }
+
+    /**
+     * 移除已完成的队首连接并提交下一段暂存的回调，持有 order。
+     */
+    private void advance() {
+        Leg head;
+        while ((head = legs.peekFirst()) != null) {
+            for (CallbackDispatcher.Event event : head.pending) {
+                if (cancelled) {
+                    return;
+                }
+                dispatcher.post(event);
+            }
+            head.pending.clear();
+            if (!head.done) {
+                return;
+            }
+            legs.pollFirst();
+            if (head.last) {//全部结果返回，结束会话
+                if (!cancelled) {
+                    dispatcher.post(CallbackDispatcher.OTHER, stsCallback::onComplete);
+                }
+                finish();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 连接在返回全部结果之前断开。会话已建立过连接时，上传中的连接重连后从断开处继续上传；
+     * 该段已发送的音频不再有结果，在重连后的结果之前回调 {@link STSCallback#onAudioLost} 并计入
+     * {@link SessionMetrics#getLostBytes()}。其余情况报告错误并结束会话。
+     */
+    private void legLost(Leg leg, int errorCode, String error) {
+        Leg next;
+        synchronized (order) {
+            if (leg.done || cancelled) {
+                return;
+            }
+            leg.done = true;
+            if (leg == spare) {//预建连接失败，切换时重新建立
+                spare = null;
+                legs.remove(leg);
+                return;
+            }
+            boolean retry = leg == uploading && !leg.last && opened && errorCode == 30001
+                    && reconnects < MAX_RECONNECTS;
+            if (!retry) {
+                next = null;
+            } else {
+                reconnects++;
+                if (metrics != null) {
+                    metrics.reconnected();
+                }
+                next = newLeg();
+                uploading = next;
+                if (legs.peekFirst() == leg) {
+                    advance();
+                }
+                AudioUploader lost = leg.uploader;
+                long lostBytes = lost != null ? lost.legBytes() : 0;
+                if (metrics != null) {
+                    metrics.audioLost(lostBytes);
+                }
+                long lostMillis = lostBytes * 1000 / (sampleRate * 2L);
+                emit(next, () -> stsCallback.onAudioLost(lostMillis));//排在新连接的结果之前
+            }
+        }
+        if (next == null) {
+            fail(errorCode, error);
+        } else {
+            LogUtils.w("connection lost, reconnecting {}: {}", id, error);
+            next.connect();
+        }
+    }
+
+    /**
+     * 一段 websocket 连接，所有监听方法都在该连接的读线程上执行。
+     * 服务端每个连接只处理 3 分钟以内的音频，快到上限时由 {@link AudioUploader} 结束本段并切换到下一段。
+     */
+    final class Leg extends WebSocketListener {
+        private final int index;
+        volatile WebSocket webSocket;
+        volatile AudioUploader uploader;
+
+        //以下由 order 保护
+        boolean open, rotated, last, done;
+        final ArrayList<CallbackDispatcher.Event> pending = new ArrayList<>();
+
+        //解码与分句，只在读线程访问
+        private final ServerMessageDecoder decoder = new ServerMessageDecoder();
+        private final AudioBufferPool audioPool = owner.audioPool();
+        private WavFileSink voiceOut;
+        private long segmentBytes;
+        private int segmentIndex;
+        private final ArrayDeque<String> pendingTexts = new ArrayDeque<>();
+        private final ArrayDeque<Long> pendingAudio = new ArrayDeque<>();//每句音频的字节数
+        private final ArrayDeque<String> pendingPaths = new ArrayDeque<>();//未写文件时为空串
+        private boolean originEnded, translationEnded, audioEnded = !speech;//没有合成语音时不等待 audio/end
+        private boolean ended;
+
+        Leg(int index) {
+            this.index = index;
+        }
+
+        void connect() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                WebSocket warm = owner.claimWarmConnection(fromLanguage, toLanguage, sampleRate, this);//优先使用预建连接
+                if (warm != null) {
+                    webSocket = warm;
+                    if (cancelled) {
+                        warm.cancel();
+                    }
+                    return;
+                }
+            } catch (Exception e) {
+                legLost(this, 30001, e.getMessage());
+                return;
+            }
+            //账号配额已满时排队，会话的后续连接优先
+            owner.credentials().acquire(index > 0, account -> {
+                if (cancelled) {
+                    owner.credentials().release(account);
+                    return;
+                }
+                try {
+                    webSocket = owner.newWebSocket(account, fromLanguage, toLanguage, sampleRate, this);//建立websocket
+                    if (cancelled) {
+                        webSocket.cancel();
+                    }
+                } catch (Exception e) {
+                    legLost(this, 30001, e.getMessage());
+                }
+            });
+        }
+
+        void cancel() {
+            AudioUploader audioUploader = uploader;
+            if (audioUploader != null) {
+                audioUploader.finish();
+            }
+            WebSocket socket = webSocket;
+            if (socket != null) {
+                socket.cancel();
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            if (cancelled){
+                return;
+            }
+            LogUtils.d("onOpen {} {}", id, index);
+            this.webSocket = webSocket;
+            boolean start;
+            synchronized (order) {
+                open = true;
+                start = uploading == this;
+                if (!opened) {
+                    opened = true;
+                    if (metrics != null) {
+                        metrics.opened();
+                        owner.metricsListener().onConnected(metrics);
+                    }
+                    dispatcher.post(CallbackDispatcher.OTHER, stsCallback::onOpen);
+                }
+            }
+            if (start) {
+                startUpload(this);
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, ByteString bytes) {
+            if (cancelled){
+                return;
+            }
+            LogUtils.d("onMessage {}", bytes);//超长内容按 maxArgLength 截断，只解码保留的部分
+            handleMessage(webSocket, bytes.asByteBuffer());
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {//文本帧
+            if (cancelled){
+                return;
+            }
+            LogUtils.d("onMessage {}", text);
+            handleMessage(webSocket, ByteString.encodeUtf8(text).asByteBuffer());
+        }
+
+        private void handleMessage(WebSocket webSocket, ByteBuffer message) {
+            try {
+                int length = message.remaining();
+                decoder.decode(message);
+                if (metrics != null) {
+                    metrics.received(decoder.type(), length);
+                }
+                switch (decoder.type()){
+                    case ServerMessageDecoder.AUDIO:    //收到音频数据
+                        if (speech) {
+                            onAudio();
+                        }
+                        break;
+                    case ServerMessageDecoder.AUDIO_FLUSH: //一句音频接收完成
+                        if (speech) {
+                            onAudioFlush();
+                        }
+                        break;
+                    case ServerMessageDecoder.AUDIO_END: //全部音频接收完成
+                        audioEnded = true;
+                        while (!pendingAudio.isEmpty()) {//剩余的句子没有对应的翻译文本
+                            emitSegment(pendingAudio.poll(), pendingPaths.poll(), null);
+                        }
+                        break;
+                    case ServerMessageDecoder.ORIGIN: { //收到识别结果
+                        boolean isFinal = decoder.isFinal();
+                        String sentence = decoder.sentence();
+                        emit(this, isFinal ? CallbackDispatcher.OTHER : CallbackDispatcher.PARTIAL_ORIGIN,
+                                () -> stsCallback.onRecognizeSuccess(isFinal, sentence));//传递识别文字
+                        break;
+                    }
+                    case ServerMessageDecoder.ORIGIN_END: //识别结束
+                        originEnded = true;
+                        break;
+                    case ServerMessageDecoder.TRANSLATION: { //收到翻译结果
+                        boolean isFinal = decoder.isFinal();
+                        String sentence = decoder.sentence();
+                        emit(this, isFinal ? CallbackDispatcher.OTHER : CallbackDispatcher.PARTIAL_TRANSLATION,
+                                () -> stsCallback.onTranslateSuccess(isFinal, sentence));//传递翻译文字
+                        if (isFinal && !audioEnded) {
+                            if (pendingAudio.isEmpty()) {
+                                pendingTexts.add(sentence);
+                            } else {
+                                emitSegment(pendingAudio.poll(), pendingPaths.poll(), sentence);
+                            }
+                        }
+                        break;
+                    }
+                    case ServerMessageDecoder.TRANSLATION_END: //翻译结束
+                        translationEnded = true;
+                        break;
+                    default:
+                        break;
+                }
+                if (originEnded && translationEnded && audioEnded && !ended) {//本段结果全部返回
+                    ended = true;
+                    webSocket.close(1000, null);
+                    completeLeg(this);
+                }
+            } catch (Exception e) {
+                LogUtils.w("handle message failed", e);
+                if (!cancelled){
+                    abortSegment();
+                    String error = e.getMessage();
+                    emitError(30003, error);
+                }
+            }
+        }
+
+        private void onAudio() throws IOException {
+            byte[] buffer = audioPool.acquire(decoder.maxAudioLength());
+            int length;
+            try {
+                length = decoder.decodeAudio(buffer, 0);//解码音频数据
+            } catch (IllegalArgumentException e) {
+                audioPool.release(buffer);
+                throw e;
+            }
+            if (length <= 0){
+                audioPool.release(buffer);
+                emitError(30003, "Audio data invalid!");
+                return;
+            }
+            if (voiceOut == null && !TextUtils.isEmpty(voiceFile)) {//每句新建音频输出文件
+                String voiceName = index == 0 ? startTime+"-"+id+"-"+segmentIndex+".wav"
+                        : startTime+"-"+id+"-"+index+"-"+segmentIndex+".wav";
+                File file = new File(voiceFile+voiceName);
+                LogUtils.d("存储 {}", file);
+                voiceOut = new WavFileSink(file, sampleRate);
+            }
+            if (voiceOut != null) {
+                voiceOut.write(buffer, 0, length);//写入音频数据
+            }
+            segmentBytes += length;
+            emit(this, () -> stsCallback.onAudio(audioPool.chunk(buffer, length)));
+        }
+
+        private void onAudioFlush() throws IOException {
+            String path = voiceOut != null ? voiceOut.finish() : null;//回写wav文件头
+            voiceOut = null;
+            segmentIndex++;
+            long bytes = segmentBytes;
+            segmentBytes = 0;
+            emit(this, () -> stsCallback.onFinish(path));
+            if (pendingTexts.isEmpty()) {
+                pendingAudio.add(bytes);
+                pendingPaths.add(path == null ? "" : path);
+            } else {
+                emitSegment(bytes, path, pendingTexts.poll());
+            }
+        }
+
+        private void emitSegment(long audioBytes, String path, String translation) {
+            String voicePath = TextUtils.isEmpty(path) ? null : path;
+            emit(this, () -> stsCallback.onSegment(new AudioSegment(segmentCount++, translation, voicePath,
+                    audioBytes, sampleRate)));
+        }
+
+        private void emitError(int errorCode, String error) {
+            if (metrics != null) {
+                metrics.error(errorCode);
+            }
+            emit(this, () -> stsCallback.onError(errorCode, error));
+        }
+
+        private void abortSegment() {
+            if (voiceOut != null) {
+                voiceOut.abort();
+                voiceOut = null;
+            }
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            abortSegment();//未收到 audio/flush 的音频不保留
+            if (cancelled){
+                return;
+            }
+            LogUtils.d("onClosed {} {}", code, reason);
+            legLost(this, 30001, "Connection closed!");//结果返回完毕前被关闭，已完成的段不受影响
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            if (cancelled){
+                return;
+            }
+            LogUtils.d("onClosing {} {}", code, reason);
+            webSocket.close(1000, null);
+            if (code != 1000) {//服务端通过关闭码返回错误，见接口文档附录二
+                legLost(this, code, reason);
+            }
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            AudioUploader audioUploader = uploader;
+            if (audioUploader != null) {
+                audioUploader.finish();
+            }
+            abortSegment();
+            if (cancelled){
+                finish();
+                return;
+            }
+            LogUtils.d("onError {} {}", t, response);
+            legLost(this, 30001, String.valueOf(t));//websocket报错
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.xap.voicetranslate.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 服务端消息解码：将整帧拷贝到复用数组后顺序扫描 JSON，只取 type、data.audio、data.sentence、data.is-final，不构建 JSONObject。
+ * audio 字段只记录位置，由调用方通过 {@link #decodeAudio} 直接 Base64 解码到目标缓冲区，下一次 decode 前有效。
+ * 每个实例只能在一个线程上使用（即会话的 WebSocket 读线程）。
+ */
+final class ServerMessageDecoder {
+    static final int UNKNOWN = 0;
+    static final int AUDIO = 1;
+    static final int AUDIO_FLUSH = 2;
+    static final int AUDIO_END = 3;
+    static final int ORIGIN = 4;
+    static final int ORIGIN_END = 5;
+    static final int TRANSLATION = 6;
+    static final int TRANSLATION_END = 7;
+
+    private static final byte[][] TYPES = {
+            null,
+            ascii("audio"),
+            ascii("audio/flush"),
+            ascii("audio/end"),
+            ascii("origin"),
+            ascii("origin/end"),
+            ascii("translation"),
+            ascii("translation/end"),
+    };
+    private static final byte[] KEY_TYPE = ascii("type");
+    private static final byte[] KEY_DATA = ascii("data");
+    private static final byte[] KEY_AUDIO = ascii("audio");
+    private static final byte[] KEY_SENTENCE = ascii("sentence");
+    private static final byte[] KEY_IS_FINAL = ascii("is-final");
+
+    private static final int[] BASE64 = new int[256];
+
+    static {
+        Arrays.fill(BASE64, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private byte[] in = new byte[1024];
+    private int pos, limit;
+    private int keyStart, keyEnd;
+    private byte[] text = new byte[256];
+
+    //解码结果
+    private int type;
+    private int audioStart, audioEnd;
+    private String sentence;
+    private boolean isFinal;
+
+    /**
+     * 解码一条消息，结果通过 {@link #type()} 等方法读取。
+     *
+     * @throws IllegalArgumentException 消息不是合法的 JSON 或音频数据不是合法的 Base64
+     */
+    void decode(ByteBuffer message) {
+        int length = message.remaining();
+        if (in.length < length) {
+            in = new byte[Math.max(length, in.length * 2)];
+        }
+        message.duplicate().get(in, 0, length);//整帧拷贝到复用数组，后续按数组扫描
+        pos = 0;
+        limit = length;
+        type = UNKNOWN;
+        audioStart = audioEnd = 0;
+        sentence = null;
+        isFinal = false;
+        expect('{');
+        parseObject(false);
+    }
+
+    int type() {
+        return type;
+    }
+
+    /**
+     * 解码后音频长度的上限，用于准备 {@link #decodeAudio} 的目标缓冲区。
+     */
+    int maxAudioLength() {
+        return (audioEnd - audioStart + 3) / 4 * 3;
+    }
+
+    /**
+     * 将 audio 字段 Base64 解码写入 out，兼容 "\/" 转义。
+     *
+     * @return 解码后的字节数
+     * @throws IllegalArgumentException 音频数据不是合法的 Base64
+     */
+    int decodeAudio(byte[] out, int offset) {
+        byte[] in = this.in;
+        int end = audioEnd;
+        int i = audioStart, o = offset;
+        while (i + 4 <= end) {//快速路径：每次解码 4 个字符，遇到填充或转义时转入逐字符处理
+            int b0 = BASE64[in[i] & 0xff];
+            int b1 = BASE64[in[i + 1] & 0xff];
+            int b2 = BASE64[in[i + 2] & 0xff];
+            int b3 = BASE64[in[i + 3] & 0xff];
+            if ((b0 | b1 | b2 | b3) < 0) {
+                break;
+            }
+            int bits = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+            out[o] = (byte) (bits >> 16);
+            out[o + 1] = (byte) (bits >> 8);
+            out[o + 2] = (byte) bits;
+            o += 3;
+            i += 4;
+        }
+        int bits = 0, count = 0;
+        for (; i < end; i++) {
+            int c = in[i] & 0xff;
+            if (c == '=') {
+                break;
+            } else if (c == '\\') {
+                continue;
+            }
+            int v = BASE64[c];
+            if (v < 0) {
+                throw new IllegalArgumentException("Audio data invalid!");
+            }
+            bits = bits << 6 | v;
+            if (++count == 4) {
+                out[o++] = (byte) (bits >> 16);
+                out[o++] = (byte) (bits >> 8);
+                out[o++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 2) {
+            out[o++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            out[o++] = (byte) (bits >> 10);
+            out[o++] = (byte) (bits >> 2);
+        } else if (count == 1) {
+            throw new IllegalArgumentException("Audio data invalid!");
+        }
+        return o - offset;
+    }
+
+    String sentence() {
+        return sentence;
+    }
+
+    boolean isFinal() {
+        return isFinal;
+    }
+
+    private void parseObject(boolean data) {
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            expect('"');
+            readKey();
+            expect(':');
+            byte c = peek();
+            if (!data && keyIs(KEY_TYPE) && c == '"') {
+                pos++;
+                type = readType();
+            } else if (!data && keyIs(KEY_DATA) && c == '{') {
+                pos++;
+                parseObject(true);
+            } else if (data && keyIs(KEY_AUDIO) && c == '"') {
+                pos++;
+                readAudio();
+            } else if (data && keyIs(KEY_SENTENCE) && c == '"') {
+                pos++;
+                sentence = readString();
+            } else if (data && keyIs(KEY_IS_FINAL) && (c == 't' || c == 'f')) {
+                isFinal = c == 't';
+                skipValue();
+            } else {
+                skipValue();
+            }
+            c = next();
+            if (c == '}') {
+                return;
+            } else if (c != ',') {
+                throw error();
+            }
+        }
+    }
+
+    private void readKey() {
+        keyStart = pos;
+        keyEnd = skipString();
+    }
+
+    private boolean keyIs(byte[] key) {
+        return regionEquals(keyStart, keyEnd, key);
+    }
+
+    private int readType() {
+        int start = pos;
+        int end = skipString();
+        for (int i = 1; i < TYPES.length; i++) {
+            if (regionEquals(start, end, TYPES[i])) {
+                return i;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private boolean regionEquals(int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (in[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 跳过字符串内容（起始引号已读），返回结束引号的位置。
+     */
+    private int skipString() {
+        while (pos < limit) {
+            byte c = in[pos++];
+            if (c == '"') {
+                return pos - 1;
+            } else if (c == '\\') {
+                pos++;
+            }
+        }
+        throw error();
+    }
+
+    private void readAudio() {
+        audioStart = pos;
+        audioEnd = skipString();
+    }
+
+    private String readString() {
+        StringBuilder sb = null;
+        int n = 0;
+        while (pos < limit) {
+            byte c = in[pos++];
+            if (c == '"') {
+                String tail = new String(text, 0, n, StandardCharsets.UTF_8);
+                return sb == null ? tail : sb.append(tail).toString();
+            } else if (c != '\\') {
+                if (n == text.length) {
+                    text = Arrays.copyOf(text, n * 2);
+                }
+                text[n++] = c;
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder();
+            }
+            sb.append(new String(text, 0, n, StandardCharsets.UTF_8));
+            n = 0;
+            if (pos >= limit) {
+                throw error();
+            }
+            c = in[pos++];
+            switch (c) {
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > limit) {
+                        throw error();
+                    }
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int d = Character.digit(in[pos++], 16);
+                        if (d < 0) {
+                            throw error();
+                        }
+                        code = code << 4 | d;
+                    }
+                    sb.append((char) code);
+                    break;
+                default: sb.append((char) c); break;
+            }
+        }
+        throw error();
+    }
+
+    private void skipValue() {
+        byte c = next();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                if (pos >= limit) {
+                    throw error();
+                }
+                c = in[pos++];
+                if (c == '"') {
+                    skipString();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            }
+        } else {
+            while (pos < limit) {//数字、true、false、null
+                c = in[pos];
+                if (c == ',' || c == '}' || c == ']' || c <= ' ') {
+                    break;
+                }
+                pos++;
+            }
+        }
+    }
+
+    private byte peek() {
+        skipWhitespace();
+        if (pos >= limit) {
+            throw error();
+        }
+        return in[pos];
+    }
+
+    private byte next() {
+        byte c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(char c) {
+        if (next() != c) {
+            throw error();
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < limit) {
+            byte c = in[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error() {
+        return new IllegalArgumentException("Malformed message at " + pos);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
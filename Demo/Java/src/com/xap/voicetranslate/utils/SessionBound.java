@@ -0,0 +1,8 @@
+package com.xap.voicetranslate.utils;
+
+/**
+ * 需要持有会话句柄的内置回调（如取消订阅时取消会话），会话开始前由 {@link ComplexSpeech} 绑定。
+ */
+interface SessionBound {
+    void bind(STSSession session);
+}
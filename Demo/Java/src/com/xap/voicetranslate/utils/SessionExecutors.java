@@ -0,0 +1,43 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 默认的会话线程池：最多 maxThreads 个守护线程，超出的任务排队，空闲 60 秒后回收；只执行建连和回调等短任务。
+ * 阻塞读取输入流的任务在 {@link #newInputExecutor} 上执行，不占用会话线程池。
+ * 以多版本 jar 发布，JDK 21 及以上加载 META-INF/versions/21 下的同名类，改为每个任务一个虚拟线程。
+ */
+final class SessionExecutors {
+
+    private SessionExecutors() {
+    }
+
+    static ExecutorService newExecutor(String prefix, int maxThreads) {
+        AtomicInteger threadIds = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, prefix + "-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 读取输入流的线程池：每个输入流会话占用一个守护线程直到读完，线程不设上限，空闲 60 秒后回收。
+     */
+    static ExecutorService newInputExecutor(String prefix) {
+        AtomicInteger threadIds = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, prefix + "-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
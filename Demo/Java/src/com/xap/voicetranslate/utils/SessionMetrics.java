@@ -0,0 +1,309 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个会话的指标，通过 {@link STSSession#getMetrics()} 或 {@link com.xap.voicetranslate.callback.MetricsListener} 获取。
+ * 首个结果的耗时均从发送第一帧音频开始计算，事件未发生时返回 -1。
+ * 切换和重连时多个连接的上传和读线程会同时写入，计数均为线程安全的累加，其他线程读取时可能略有滞后。
+ */
+public final class SessionMetrics {
+    private final int sessionId;
+    private final ClientMetrics client;
+    private final long createdNanos = System.nanoTime();
+
+    //时间点，System.nanoTime()，0 表示未发生
+    private volatile long connectNanos, openNanos, firstSendNanos;
+    private volatile long firstOriginNanos, firstTranslationNanos, firstAudioNanos, firstFlushNanos;
+    private volatile long endNanos;
+
+    //计数
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder framesQueued = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder suppressedBytes = new LongAdder();
+    private final LongAdder lostBytes = new LongAdder();
+    private final LongAccumulator peakQueueBytes = new LongAccumulator(Math::max, 0);
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder droppedCallbacks = new LongAdder();
+    private final AtomicInteger errorCode = new AtomicInteger();
+    private final AtomicInteger legs = new AtomicInteger();
+    private final AtomicInteger reconnects = new AtomicInteger();
+
+    SessionMetrics(int sessionId, ClientMetrics client) {
+        this.sessionId = sessionId;
+        this.client = client;
+        client.sessionStarted();
+    }
+
+    void connectStarted() {
+        connectNanos = System.nanoTime();
+    }
+
+    void opened() {
+        openNanos = System.nanoTime();
+    }
+
+    void queueSize(long bytes) {
+        peakQueueBytes.accumulate(bytes);
+    }
+
+    void sent(int bytes, boolean ok) {
+        if (!ok) {
+            sendFailures.increment();
+            client.sendFailed();
+            return;
+        }
+        if (firstSendNanos == 0) {
+            firstSendNanos = System.nanoTime();
+        }
+        bytesSent.add(bytes);
+        framesQueued.increment();
+        client.sent(bytes);
+    }
+
+    void suppressed(int bytes) {
+        suppressedBytes.add(bytes);
+        client.suppressed(bytes);
+    }
+
+    void received(int type, int bytes) {
+        bytesReceived.add(bytes);
+        messagesReceived.increment();
+        client.received(bytes);
+        switch (type) {
+            case ServerMessageDecoder.ORIGIN:
+                if (firstOriginNanos == 0) {
+                    firstOriginNanos = System.nanoTime();
+                }
+                break;
+            case ServerMessageDecoder.TRANSLATION:
+                if (firstTranslationNanos == 0) {
+                    firstTranslationNanos = System.nanoTime();
+                }
+                break;
+            case ServerMessageDecoder.AUDIO:
+                if (firstAudioNanos == 0) {
+                    firstAudioNanos = System.nanoTime();
+                }
+                break;
+            case ServerMessageDecoder.AUDIO_FLUSH:
+                if (firstFlushNanos == 0) {
+                    firstFlushNanos = System.nanoTime();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    void callbackDropped() {
+        droppedCallbacks.increment();
+        client.callbackDropped();
+    }
+
+    void legStarted() {
+        legs.incrementAndGet();
+    }
+
+    void reconnected() {
+        reconnects.incrementAndGet();
+    }
+
+    void audioLost(long bytes) {
+        lostBytes.add(bytes);
+    }
+
+    void error(int code) {
+        errorCode.compareAndSet(0, code);
+    }
+
+    /**
+     * 标记会话结束并汇总到客户端指标。
+     *
+     * @return 首次调用返回 true
+     */
+    synchronized boolean end() {
+        if (endNanos != 0) {
+            return false;
+        }
+        endNanos = System.nanoTime();
+        client.sessionEnded(this);
+        return true;
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * 建立连接（TCP、TLS 与 WebSocket 握手）的耗时。
+     */
+    public long getConnectMillis() {
+        return millis(connectNanos, openNanos);
+    }
+
+    /**
+     * 发送第一帧音频到收到第一条识别结果（含中间结果）的耗时。
+     */
+    public long getFirstOriginMillis() {
+        return millis(firstSendNanos, firstOriginNanos);
+    }
+
+    public long getFirstTranslationMillis() {
+        return millis(firstSendNanos, firstTranslationNanos);
+    }
+
+    /**
+     * 发送第一帧音频到收到第一段合成音频的耗时。
+     */
+    public long getFirstAudioMillis() {
+        return millis(firstSendNanos, firstAudioNanos);
+    }
+
+    /**
+     * 发送第一帧音频到第一句合成音频完成（audio/flush）的耗时。
+     */
+    public long getFirstFlushMillis() {
+        return millis(firstSendNanos, firstFlushNanos);
+    }
+
+    /**
+     * 会话创建到结束的耗时，未结束时为到当前的耗时。
+     */
+    public long getDurationMillis() {
+        long end = endNanos;
+        return ((end != 0 ? end : System.nanoTime()) - createdNanos) / 1_000_000;
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * 成功放入 WebSocket 发送队列的帧数（含 audio/end）。
+     */
+    public long getFramesQueued() {
+        return framesQueued.sum();
+    }
+
+    /**
+     * WebSocket 拒绝发送（连接已关闭或发送队列超过 16MB）的次数。
+     */
+    public long getSendFailures() {
+        return sendFailures.sum();
+    }
+
+    /**
+     * 开启静音过滤时未上传的 PCM 字节数。
+     */
+    public long getSuppressedBytes() {
+        return suppressedBytes.sum();
+    }
+
+    /**
+     * 断线重连时，断开的连接上已发送、没有结果的 PCM 字节数上限。
+     */
+    public long getLostBytes() {
+        return lostBytes.sum();
+    }
+
+    /**
+     * 上传时观察到的发送队列积压峰值（字节）。
+     */
+    public long getPeakQueueBytes() {
+        return peakQueueBytes.get();
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.sum();
+    }
+
+    /**
+     * 回调队列写满或合并时未回调的中间结果数。
+     */
+    public long getDroppedCallbacks() {
+        return droppedCallbacks.sum();
+    }
+
+    /**
+     * 会话的第一个错误码，未出错时为 0。
+     */
+    public int getErrorCode() {
+        return errorCode.get();
+    }
+
+    /**
+     * 上传过音频的连接数：超过单连接音频上限时切换连接，或断线重连。
+     */
+    public int getLegs() {
+        return legs.get();
+    }
+
+    public int getReconnects() {
+        return reconnects.get();
+    }
+
+    public boolean isEnded() {
+        return endNanos != 0;
+    }
+
+    long firstSendNanos() {
+        return firstSendNanos;
+    }
+
+    long connectNanos() {
+        return connectNanos;
+    }
+
+    long openNanos() {
+        return openNanos;
+    }
+
+    long firstOriginNanos() {
+        return firstOriginNanos;
+    }
+
+    long firstTranslationNanos() {
+        return firstTranslationNanos;
+    }
+
+    long firstAudioNanos() {
+        return firstAudioNanos;
+    }
+
+    long firstFlushNanos() {
+        return firstFlushNanos;
+    }
+
+    private static long millis(long from, long to) {
+        return from == 0 || to == 0 ? -1 : (to - from) / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionMetrics{id=" + sessionId
+                + ", connect=" + getConnectMillis() + "ms"
+                + ", firstOrigin=" + getFirstOriginMillis() + "ms"
+                + ", firstTranslation=" + getFirstTranslationMillis() + "ms"
+                + ", firstAudio=" + getFirstAudioMillis() + "ms"
+                + ", firstFlush=" + getFirstFlushMillis() + "ms"
+                + ", duration=" + getDurationMillis() + "ms"
+                + ", sent=" + bytesSent.sum() + "B/" + framesQueued.sum() + " frames"
+                + ", suppressed=" + suppressedBytes.sum() + "B"
+                + ", lost=" + lostBytes.sum() + "B"
+                + ", sendFailures=" + sendFailures.sum()
+                + ", peakQueue=" + peakQueueBytes.get() + "B"
+                + ", received=" + bytesReceived.sum() + "B/" + messagesReceived.sum() + " messages"
+                + ", droppedCallbacks=" + droppedCallbacks.sum()
+                + ", legs=" + legs.get() + ", reconnects=" + reconnects.get()
+                + ", error=" + errorCode.get() + "}";
+    }
+}
@@ -0,0 +1,270 @@
+package com.xap.voicetranslate.utils;
+
+import com.xap.voicetranslate.callback.AudioChunk;
+import com.xap.voicetranslate.callback.AudioSegment;
+import com.xap.voicetranslate.callback.STSCallback;
+import com.xap.voicetranslate.callback.STSEvent;
+import com.xap.voicetranslate.callback.STSException;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * 以 Reactive Streams {@link Publisher} 发布会话结果：作为 {@link STSCallback} 传给 startSTS / startStream，
+ * 再订阅得到 {@link STSEvent}，会话正常结束时 onComplete，出错时以 {@link STSException} onError。
+ * JDK 9+ 可用 {@code org.reactivestreams.FlowAdapters.toFlowPublisher} 转为 {@code java.util.concurrent.Flow.Publisher}。
+ * <p>
+ * 只允许一个订阅者。订阅前和需求不足时事件暂存在 bufferSize 大小的缓冲区中，缓冲区满时阻塞回调线程，
+ * 进而通过回调队列（{@link OverflowPolicy#BLOCK}）阻塞读线程，实现按需拉取。事件在回调线程上直接投递，
+ * 不另外切换线程。取消订阅时取消会话。
+ */
+public final class SessionPublisher implements Publisher<STSEvent>, STSCallback, SessionBound {
+    private final int bufferSize;
+
+    //以下由 this 保护
+    private final ArrayDeque<STSEvent> buffer = new ArrayDeque<>();
+    private Subscriber<? super STSEvent> subscriber;
+    private boolean subscribed;
+    private long requested;
+    private boolean cancelled;
+    private boolean done, terminated;
+    private Throwable error;
+    private Throwable cancelError;//订阅方违反规范（如 request(0)）时待投递的错误，由 drain 投递
+
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile STSSession session;
+
+    public SessionPublisher() {
+        this(256);
+    }
+
+    public SessionPublisher(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize < 1");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super STSEvent> s) {
+        if (s == null) {
+            throw new NullPointerException("subscriber == null");
+        }
+        boolean first;
+        synchronized (this) {
+            first = !subscribed;
+            subscribed = true;
+        }
+        if (!first) {
+            s.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            s.onError(new IllegalStateException("SessionPublisher allows only one subscriber"));
+            return;
+        }
+        s.onSubscribe(new EventSubscription());
+        synchronized (this) {
+            subscriber = s;//onSubscribe 返回后才开始投递
+        }
+        drain();
+    }
+
+    @Override
+    public void bind(STSSession session) {
+        this.session = session;
+    }
+
+    @Override
+    public void onRecognizeSuccess(boolean isFinal, String recognizeResult) {
+        offer(STSEvent.recognition(isFinal, recognizeResult));
+    }
+
+    @Override
+    public void onTranslateSuccess(boolean isFinal, String translateResult) {
+        offer(STSEvent.translation(isFinal, translateResult));
+    }
+
+    @Override
+    public void onAudio(AudioChunk chunk) {
+        offer(STSEvent.audio(chunk));
+    }
+
+    @Override
+    public void onSegment(AudioSegment segment) {
+        offer(STSEvent.segment(segment));
+    }
+
+    @Override
+    public void onAudioLost(long lostMillis) {
+        offer(STSEvent.audioLost(lostMillis));
+    }
+
+    @Override
+    public void onFinish(String voicePath) {
+        //由 SEGMENT 事件携带
+    }
+
+    @Override
+    public void onOpen() {
+    }
+
+    @Override
+    public void onError(int errorCode, String error) {
+        terminate(new STSException(errorCode, error));
+    }
+
+    @Override
+    public void onComplete() {
+        terminate(null);
+    }
+
+    /**
+     * 在回调线程上暂存事件，缓冲区满时等待订阅方请求。
+     */
+    private void offer(STSEvent event) {
+        synchronized (this) {
+            boolean interrupted = false;
+            while (buffer.size() >= bufferSize && !cancelled && !done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (cancelled || done) {
+                release(event);
+                return;
+            }
+            buffer.add(event);
+        }
+        drain();
+    }
+
+    private void terminate(Throwable t) {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            error = t;
+            notifyAll();
+        }
+        drain();
+    }
+
+    /**
+     * 按需求投递暂存的事件和终止信号；同一时刻只有一个线程投递，保证所有信号串行（规范 1.3）。
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (true) {
+                Subscriber<? super STSEvent> s;
+                STSEvent event = null;
+                Throwable terminal = null;
+                boolean complete = false;
+                synchronized (this) {
+                    s = subscriber;
+                    if (s == null || terminated) {
+                        break;
+                    }
+                    if (cancelled) {
+                        if (cancelError == null) {
+                            break;
+                        }
+                        terminated = true;
+                        terminal = cancelError;
+                        cancelError = null;
+                    } else if (!buffer.isEmpty() && requested > 0) {
+                        event = buffer.poll();
+                        if (requested != Long.MAX_VALUE) {
+                            requested--;
+                        }
+                        notifyAll();
+                    } else if (buffer.isEmpty() && done) {
+                        terminated = true;
+                        terminal = error;
+                        complete = error == null;
+                    } else {
+                        break;
+                    }
+                }
+                if (event != null) {
+                    s.onNext(event);
+                } else if (complete) {
+                    s.onComplete();
+                } else {
+                    s.onError(terminal);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private static void release(STSEvent event) {
+        if (event.getType() == STSEvent.Type.AUDIO) {
+            event.getAudio().release();
+        }
+    }
+
+    private final class EventSubscription implements Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelWith(new IllegalArgumentException("request " + n + " <= 0"));//规范 3.9
+                return;
+            }
+            synchronized (SessionPublisher.this) {
+                long r = requested + n;
+                requested = r < 0 ? Long.MAX_VALUE : r;
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelWith(null);
+        }
+
+        /**
+         * 取消订阅并取消会话；t 不为 null 时由 drain 在投递线程上串行地投递 onError。
+         */
+        private void cancelWith(Throwable t) {
+            synchronized (SessionPublisher.this) {
+                if (cancelled || terminated) {
+                    return;
+                }
+                cancelled = true;
+                cancelError = t;
+                for (STSEvent event : buffer) {
+                    release(event);
+                }
+                buffer.clear();
+                SessionPublisher.this.notifyAll();
+            }
+            STSSession bound = session;
+            if (bound != null) {
+                bound.cancel();
+            }
+            if (t != null) {
+                drain();
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.IOException;
+
+/**
+ * 静音过滤：包装音频来源，按 20ms 分块做能量 + 过零率检测，超过 keepMillis 的连续静音不再上传。
+ * 短停顿（不超过 keepMillis）原样保留，服务端仍可据此断句；语音恢复前的最后 100ms 静音补发，避免切掉起音。
+ * 同时为 {@link AudioUploader} 检测切换连接的静音：按过滤前的音频计算，keepMillis 较小时也不影响切换。
+ * 只在上传线程上读取。
+ */
+class SilenceFilter implements AudioSource {
+    static final double DEFAULT_THRESHOLD = 400;
+    private static final int BLOCK_MILLIS = 20;
+    private static final int PREROLL_BLOCKS = 5;
+    private static final double FRICATIVE_ZCR = 0.25;//清辅音能量低但过零率高
+    private static final int MAX_SCAN_MILLIS = 1000;//单次读取最多检测的音频，避免长静音文件占住上传线程
+
+    private final AudioSource source;
+    private final SessionMetrics metrics;
+    private final double threshold;
+    private final long keepBytes;
+    private final long boundaryBytes;
+    private final int maxScanBytes;
+    private final int bytesPerSecond;
+
+    //正在检测的块
+    private final byte[] block;
+    private int blockLen;
+
+    //待输出的数据
+    private final byte[] out;
+    private int outPos, outLen;
+
+    //丢弃中的静音，保留最近几块用于补发
+    private final byte[][] preroll;
+    private final int[] prerollLen;
+    private int prerollHead, prerollCount;
+
+    private long silentBytes;
+    private boolean silence;//出现了可切换连接的静音，由上传器取走
+    private volatile long suppressedBytes;//只在上传线程写入
+    private boolean ended;
+
+    SilenceFilter(AudioSource source, int sampleRate, int keepMillis, double threshold, SessionMetrics metrics) {
+        this.source = source;
+        this.metrics = metrics;
+        this.threshold = threshold;
+        this.bytesPerSecond = sampleRate * 2;
+        this.keepBytes = (long) bytesPerSecond * keepMillis / 1000;
+        this.boundaryBytes = (long) bytesPerSecond * AudioUploader.SILENCE_MILLIS / 1000;
+        this.maxScanBytes = bytesPerSecond * MAX_SCAN_MILLIS / 1000;
+        int blockBytes = Math.max(2, bytesPerSecond * BLOCK_MILLIS / 1000 & ~1);
+        this.block = new byte[blockBytes];
+        this.out = new byte[blockBytes * (PREROLL_BLOCKS + 1)];
+        this.preroll = new byte[PREROLL_BLOCKS][blockBytes];
+        this.prerollLen = new int[PREROLL_BLOCKS];
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = 0, scanned = 0;
+        while (n < length) {
+            if (outPos < outLen) {
+                int count = Math.min(length - n, outLen - outPos);
+                System.arraycopy(out, outPos, buffer, offset + n, count);
+                outPos += count;
+                n += count;
+                continue;
+            }
+            if (ended || scanned >= maxScanBytes) {
+                break;
+            }
+            int len = source.read(block, blockLen, block.length - blockLen);
+            if (len == -1) {
+                ended = true;
+                if (blockLen > 0) {
+                    process();
+                }
+                dropPreroll();//结尾的静音不再补发
+                continue;
+            }
+            if (len == 0) {
+                break;
+            }
+            blockLen += len;
+            scanned += len;
+            if (blockLen == block.length) {
+                process();
+            }
+        }
+        return n == 0 && ended ? -1 : n;
+    }
+
+    /**
+     * 检测当前块：语音或短停顿放入输出，长静音暂存到补发队列，被挤出的部分计为已过滤。
+     */
+    private void process() {
+        int len = blockLen;
+        blockLen = 0;
+        outPos = outLen = 0;
+        if (isSpeech(block, len)) {
+            silentBytes = 0;
+            while (prerollCount > 0) {//语音恢复，先补发最近的静音
+                int i = prerollHead;
+                append(preroll[i], prerollLen[i]);
+                prerollHead = (i + 1) % PREROLL_BLOCKS;
+                prerollCount--;
+            }
+            append(block, len);
+            return;
+        }
+        silentBytes += len;
+        if (silentBytes >= boundaryBytes) {
+            silence = true;
+        }
+        if (silentBytes <= keepBytes) {
+            append(block, len);
+            return;
+        }
+        if (prerollCount == PREROLL_BLOCKS) {
+            suppressed(prerollLen[prerollHead]);
+            prerollHead = (prerollHead + 1) % PREROLL_BLOCKS;
+            prerollCount--;
+        }
+        int tail = (prerollHead + prerollCount) % PREROLL_BLOCKS;
+        System.arraycopy(block, 0, preroll[tail], 0, len);
+        prerollLen[tail] = len;
+        prerollCount++;
+    }
+
+    private boolean isSpeech(byte[] pcm, int len) {
+        double rms = AudioUtil.rms(pcm, 0, len);
+        if (rms >= threshold) {
+            return true;
+        }
+        return rms >= threshold / 2 && zeroCrossingRate(pcm, len) >= FRICATIVE_ZCR;
+    }
+
+    private static double zeroCrossingRate(byte[] pcm, int len) {
+        int samples = len / 2;
+        if (samples < 2) {
+            return 0;
+        }
+        int crossings = 0;
+        boolean negative = (short) ((pcm[0] & 0xff) | (pcm[1] << 8)) < 0;
+        for (int i = 2; i + 1 < len; i += 2) {
+            boolean n = (short) ((pcm[i] & 0xff) | (pcm[i + 1] << 8)) < 0;
+            if (n != negative) {
+                crossings++;
+                negative = n;
+            }
+        }
+        return (double) crossings / (samples - 1);
+    }
+
+    private void append(byte[] data, int len) {
+        System.arraycopy(data, 0, out, outLen, len);
+        outLen += len;
+    }
+
+    private void dropPreroll() {
+        while (prerollCount > 0) {
+            suppressed(prerollLen[prerollHead]);
+            prerollHead = (prerollHead + 1) % PREROLL_BLOCKS;
+            prerollCount--;
+        }
+    }
+
+    private void suppressed(int bytes) {
+        suppressedBytes += bytes;
+        if (metrics != null) {
+            metrics.suppressed(bytes);
+        }
+    }
+
+    /**
+     * 上次调用以来是否出现过不短于 {@link AudioUploader#SILENCE_MILLIS} 的静音，调用后清除。
+     */
+    boolean takeSilence() {
+        boolean s = silence;
+        silence = false;
+        return s;
+    }
+
+    /**
+     * 已过滤的静音时长（毫秒），可在任意线程读取。
+     */
+    long suppressedMillis() {
+        return suppressedBytes * 1000 / bytesPerSecond;
+    }
+
+    @Override
+    public void close() throws IOException {
+        LogUtils.d("silence suppressed {} ms", suppressedMillis());
+        source.close();
+    }
+}
@@ -0,0 +1,38 @@
+package com.xap.voicetranslate.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 转发到 SLF4J（logger 名为 com.xap.voicetranslate），需自行引入 slf4j-api 及其实现。
+ * 使用时通过 {@link LogUtils#setLevel} 放开需要的级别，具体过滤和异步输出交由 SLF4J 的实现配置。
+ */
+public class Slf4jLogBackend implements LogBackend {
+    private final Logger logger;
+
+    public Slf4jLogBackend() {
+        this(LoggerFactory.getLogger("com.xap.voicetranslate"));
+    }
+
+    public Slf4jLogBackend(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void log(LogLevel level, String message, Throwable error) {
+        switch (level) {
+            case DEBUG:
+                logger.debug(message, error);
+                break;
+            case INFO:
+                logger.info(message, error);
+                break;
+            case WARN:
+                logger.warn(message, error);
+                break;
+            default:
+                logger.error(message, error);
+                break;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.xap.voicetranslate.utils;
+
+/**
+ * 同步写到标准输出，格式与早期版本一致（"xap" 前缀）。
+ */
+public class StdoutLogBackend implements LogBackend {
+    private final String tag;
+
+    public StdoutLogBackend(String tag) {
+        this.tag = tag;
+    }
+
+    @Override
+    public void log(LogLevel level, String message, Throwable error) {
+        StringBuilder sb = new StringBuilder(tag);
+        if (level != LogLevel.DEBUG) {
+            sb.append(' ').append(level).append(' ');
+        }
+        sb.append(message);
+        if (error != null) {
+            sb.append(": ").append(error);
+        }
+        System.out.println(sb);
+    }
+}
@@ -0,0 +1,154 @@
+package com.xap.voicetranslate.utils;
+
+import com.xap.voicetranslate.callback.TranscriptEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一路文本（识别或翻译）：最终结果按句保存为不可变的 {@link Segment}，当前中间结果单独保存，
+ * 即接口文档中的 S1、S2。收到结果只追加或替换，不拼接全文；全文只在调用 {@link #getText()} 时生成。
+ * 由 {@link TranscriptAssembler} 更新，可在任意线程读取。
+ */
+public final class Transcript {
+
+    /**
+     * 一句最终结果。
+     */
+    public static final class Segment {
+        private final int index;
+        private final String text;
+        private final long startMillis;
+        private final long endMillis;
+
+        Segment(int index, String text, long startMillis, long endMillis) {
+            this.index = index;
+            this.text = text;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * 该句收到第一个结果（通常是中间结果）的时间（毫秒时间戳）。
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * 收到该句最终结果的时间（毫秒时间戳）。
+         */
+        public long getEndMillis() {
+            return endMillis;
+        }
+
+        @Override
+        public String toString() {
+            return index + ":" + text;
+        }
+    }
+
+    private final TranscriptEvent.Stream stream;
+
+    //以下由 this 保护
+    private final List<Segment> segments = new ArrayList<>();
+    private int finalLength;//最终结果的总字符数
+    private String partial = "";
+    private long partialStart;//当前句收到第一个结果的时间，尚未收到时为 0
+
+    Transcript(TranscriptEvent.Stream stream) {
+        this.stream = stream;
+    }
+
+    public TranscriptEvent.Stream getStream() {
+        return stream;
+    }
+
+    /**
+     * 更新结果。
+     *
+     * @return 需要发出的增量事件，没有变化时返回 null
+     */
+    synchronized TranscriptEvent update(boolean isFinal, String text, long now) {
+        if (text == null) {
+            text = "";
+        }
+        if (partialStart == 0) {
+            partialStart = now;
+        }
+        int index = segments.size();
+        if (!isFinal) {
+            if (text.equals(partial)) {//重复的中间结果不发出事件
+                return null;
+            }
+            partial = text;
+            return TranscriptEvent.partial(stream, index, text, partialStart, now);
+        }
+        long start = partialStart;
+        boolean hadPartial = !partial.isEmpty();
+        partial = "";
+        partialStart = 0;
+        if (text.isEmpty()) {//空的最终结果只清空中间结果
+            return hadPartial ? TranscriptEvent.partial(stream, index, "", start, now) : null;
+        }
+        segments.add(new Segment(index, text, start, now));
+        finalLength += text.length();
+        return TranscriptEvent.appended(stream, index, text, start, now);
+    }
+
+    /**
+     * 已完成的句子，返回快照。
+     */
+    public synchronized List<Segment> getSegments() {
+        return Collections.unmodifiableList(new ArrayList<>(segments));
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized Segment getSegment(int index) {
+        return segments.get(index);
+    }
+
+    /**
+     * 当前的中间结果，没有时为空串。
+     */
+    public synchronized String getPartial() {
+        return partial;
+    }
+
+    /**
+     * 全部最终结果拼接后的文本（S1）。
+     */
+    public synchronized String getFinalText() {
+        return appendFinal(new StringBuilder(finalLength)).toString();
+    }
+
+    /**
+     * 当前的实时文本，即最终结果加中间结果（S1 + S2）。
+     */
+    public synchronized String getText() {
+        return appendFinal(new StringBuilder(finalLength + partial.length())).append(partial).toString();
+    }
+
+    private StringBuilder appendFinal(StringBuilder sb) {
+        for (Segment segment : segments) {
+            sb.append(segment.text);
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return getText();
+    }
+}
@@ -0,0 +1,63 @@
+package com.xap.voicetranslate.utils;
+
+import com.xap.voicetranslate.callback.STSCallback;
+import com.xap.voicetranslate.callback.TranscriptEvent;
+import com.xap.voicetranslate.callback.TranscriptListener;
+
+/**
+ * 按接口文档中 S1、S2 的规则维护识别和翻译两路文本，并把每次变化作为增量事件发给 {@link TranscriptListener}，
+ * 适合实时显示或转发给前端。可直接作为 {@link STSCallback} 传给 startSTS / startStream，
+ * 也可在自己的回调中调用 {@link #onRecognizeSuccess}、{@link #onTranslateSuccess}。一个实例对应一个会话。
+ */
+public final class TranscriptAssembler implements STSCallback {
+    private final Transcript recognition = new Transcript(TranscriptEvent.Stream.RECOGNITION);
+    private final Transcript translation = new Transcript(TranscriptEvent.Stream.TRANSLATION);
+    private final TranscriptListener listener;
+
+    /**
+     * 只维护文本，不发出事件。
+     */
+    public TranscriptAssembler() {
+        this(null);
+    }
+
+    public TranscriptAssembler(TranscriptListener listener) {
+        this.listener = listener;
+    }
+
+    public Transcript getRecognition() {
+        return recognition;
+    }
+
+    public Transcript getTranslation() {
+        return translation;
+    }
+
+    @Override
+    public void onRecognizeSuccess(boolean isFinal, String recognizeResult) {
+        publish(recognition.update(isFinal, recognizeResult, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void onTranslateSuccess(boolean isFinal, String translateResult) {
+        publish(translation.update(isFinal, translateResult, System.currentTimeMillis()));
+    }
+
+    private void publish(TranscriptEvent event) {
+        if (event != null && listener != null) {
+            listener.onTranscript(event);
+        }
+    }
+
+    @Override
+    public void onFinish(String voicePath) {
+    }
+
+    @Override
+    public void onOpen() {
+    }
+
+    @Override
+    public void onError(int errorCode, String error) {
+    }
+}
@@ -0,0 +1,337 @@
+package com.xap.voicetranslate.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * 预建连接池：按 (源语言, 目标语言, 采样率) 提前签名并建立 WebSocket 连接，新会话直接取用，省去 TCP、TLS 和 WebSocket 握手。
+ * 服务端每个连接只承载一次会话，连接被取用后在后台补充；空闲超过 idleTimeout（需小于服务端 16 秒的空闲断开时间）的连接会被关闭并替换，
+ * 1 分钟内没有会话的语言对不再补充。签名只在握手时校验，连接建立后不受 3 分钟时间戳窗口的限制。
+ */
+final class WarmConnectionPool {
+    private static final long KEEP_WARM_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ComplexSpeech owner;
+    private final int perKey;
+    private final int maxTotal;
+    private final long idleTimeoutNanos;
+    private final ConcurrentHashMap<String, Key> keys = new ConcurrentHashMap<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private volatile ScheduledFuture<?> maintenance;
+    private volatile boolean closed;
+
+    WarmConnectionPool(ComplexSpeech owner, int perKey, int maxTotal, long idleTimeoutMillis) {
+        this.owner = owner;
+        this.perKey = perKey;
+        this.maxTotal = maxTotal;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    }
+
+    void start(ScheduledExecutorService scheduler) {
+        maintenance = scheduler.scheduleWithFixedDelay(this::maintain, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 为该语言对建立连接，之后 1 分钟内保持 perKey 个空闲连接。
+     */
+    void warmUp(String from, String to, int rate) {
+        Key key = key(from, to, rate);
+        key.lastUsed = System.nanoTime();
+        refill(key);
+    }
+
+    /**
+     * 取出一个连接并把后续事件转交给 listener；连接已建立时在当前线程回调 listener.onOpen。
+     *
+     * @return 没有可用连接时返回 null
+     */
+    WebSocket claim(String from, String to, int rate, WebSocketListener listener) {
+        if (closed) {
+            return null;
+        }
+        Key key = key(from, to, rate);
+        key.lastUsed = System.nanoTime();
+        WarmConnection connection = key.poll();
+        if (connection != null) {
+            total.decrementAndGet();
+        }
+        try {
+            owner.scheduler().execute(() -> refill(key));//后台补充，不占用会话的建连时间
+        } catch (RejectedExecutionException e) {
+            LogUtils.d("warm pool refill rejected {}", key.name);
+        }
+        if (connection == null || !connection.attach(listener)) {
+            return null;
+        }
+        LogUtils.d("warm connection claimed {}", key.name);
+        return connection.webSocket;
+    }
+
+    /**
+     * 当前池中（含正在握手）的连接数。
+     */
+    int size() {
+        return total.get();
+    }
+
+    void close() {
+        closed = true;
+        ScheduledFuture<?> f = maintenance;
+        if (f != null) {
+            f.cancel(false);
+        }
+        for (Key key : keys.values()) {
+            for (WarmConnection connection : key.drain(0)) {
+                connection.evict();
+            }
+        }
+    }
+
+    private Key key(String from, String to, int rate) {
+        String name = from + "|" + to + "|" + rate;
+        Key key = keys.get(name);
+        return key != null ? key : keys.computeIfAbsent(name, n -> new Key(n, from, to, rate));
+    }
+
+    private void maintain() {
+        long now = System.nanoTime();
+        for (Key key : keys.values()) {
+            for (WarmConnection connection : key.drain(now - idleTimeoutNanos)) {//关闭快到服务端空闲超时的连接
+                connection.evict();
+            }
+            if (now - key.lastUsed > KEEP_WARM_NANOS) {
+                for (WarmConnection connection : key.drain(0)) {
+                    connection.evict();
+                }
+                keys.remove(key.name, key);
+            } else {
+                refill(key);
+            }
+        }
+    }
+
+    private void refill(Key key) {
+        long now = System.nanoTime();
+        if (closed || now - key.lastUsed > KEEP_WARM_NANOS || now - key.retryAt < 0) {
+            return;
+        }
+        synchronized (key) {
+            while (key.idle.size() < perKey) {
+                if (total.incrementAndGet() > maxTotal) {
+                    total.decrementAndGet();
+                    return;
+                }
+                CredentialPool.Account account = owner.credentials().tryAcquire();//预建连接不排队，账号没有空闲名额时不补充
+                if (account == null) {
+                    total.decrementAndGet();
+                    return;
+                }
+                WarmConnection connection = new WarmConnection(key);
+                key.idle.add(connection);
+                try {
+                    connection.webSocket = owner.newWebSocket(account, key.from, key.to, key.rate, connection);
+                } catch (Exception e) {
+                    LogUtils.w("warm connection failed", e);
+                    key.idle.remove(connection);
+                    total.decrementAndGet();
+                    key.retryAt = now + RETRY_NANOS;
+                    return;
+                }
+            }
+        }
+    }
+
+    private void discard(WarmConnection connection, boolean failed) {
+        Key key = connection.key;
+        synchronized (key) {
+            if (key.idle.remove(connection)) {
+                total.decrementAndGet();
+            }
+            if (failed) {//握手失败（如签名错误）时暂停补充，避免反复重连
+                key.retryAt = System.nanoTime() + RETRY_NANOS;
+            }
+        }
+    }
+
+    private static final class Key {
+        final String name;
+        final String from;
+        final String to;
+        final int rate;
+        final ArrayDeque<WarmConnection> idle = new ArrayDeque<>();
+        volatile long lastUsed;
+        volatile long retryAt;
+
+        Key(String name, String from, String to, int rate) {
+            this.name = name;
+            this.from = from;
+            this.to = to;
+            this.rate = rate;
+            this.lastUsed = System.nanoTime();
+            this.retryAt = lastUsed;
+        }
+
+        /**
+         * 优先取已建立的连接，其次取正在握手的连接。
+         */
+        synchronized WarmConnection poll() {
+            for (Iterator<WarmConnection> it = idle.iterator(); it.hasNext(); ) {
+                WarmConnection connection = it.next();
+                if (connection.open) {
+                    it.remove();
+                    return connection;
+                }
+            }
+            return idle.pollFirst();
+        }
+
+        /**
+         * 移除 createdBefore 之前建立的连接，传 0 时移除全部。
+         */
+        synchronized List<WarmConnection> drain(long createdBefore) {
+            List<WarmConnection> removed = new ArrayList<>();
+            for (Iterator<WarmConnection> it = idle.iterator(); it.hasNext(); ) {
+                WarmConnection connection = it.next();
+                if (createdBefore == 0 || connection.createdNanos - createdBefore < 0) {
+                    it.remove();
+                    removed.add(connection);
+                }
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * 池中连接的监听，被取用前自行处理关闭和失败，取用后把所有事件转交给会话的监听。
+     * 事件分发与 {@link #attach} 互斥，保证会话先收到 onOpen。
+     */
+    private final class WarmConnection extends WebSocketListener {
+        final Key key;
+        final long createdNanos = System.nanoTime();
+        volatile WebSocket webSocket;
+        volatile boolean open;
+        private Response response;
+        private WebSocketListener target;
+        private boolean closed;
+
+        WarmConnection(Key key) {
+            this.key = key;
+        }
+
+        synchronized boolean attach(WebSocketListener listener) {
+            if (closed) {
+                return false;
+            }
+            target = listener;
+            if (open) {
+                listener.onOpen(webSocket, response);
+            }
+            return true;
+        }
+
+        void evict() {
+            total.decrementAndGet();
+            WebSocket socket;
+            boolean wasOpen;
+            synchronized (this) {
+                closed = true;
+                socket = webSocket;
+                wasOpen = open;
+            }
+            if (socket == null) {
+                return;
+            }
+            if (wasOpen) {
+                socket.close(1000, null);
+            } else {
+                socket.cancel();
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            synchronized (this) {
+                if (target != null) {
+                    target.onOpen(webSocket, response);
+                    return;
+                }
+                this.webSocket = webSocket;
+                this.response = response;
+                this.open = true;
+                if (!closed) {
+                    return;
+                }
+            }
+            webSocket.close(1000, null);//握手期间已被淘汰
+        }
+
+        @Override
+        public synchronized void onMessage(WebSocket webSocket, String text) {
+            if (target != null) {
+                target.onMessage(webSocket, text);
+            }
+        }
+
+        @Override
+        public synchronized void onMessage(WebSocket webSocket, ByteString bytes) {
+            if (target != null) {
+                target.onMessage(webSocket, bytes);
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            boolean evicted;
+            synchronized (this) {
+                if (target != null) {
+                    target.onClosing(webSocket, code, reason);
+                    return;
+                }
+                evicted = closed;
+                closed = true;
+            }
+            webSocket.close(1000, null);
+            if (!evicted) {
+                discard(this, code != 1000);
+            }
+        }
+
+        @Override
+        public synchronized void onClosed(WebSocket webSocket, int code, String reason) {
+            if (target != null) {
+                target.onClosed(webSocket, code, reason);
+            }
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            boolean evicted;
+            synchronized (this) {
+                if (target != null) {
+                    target.onFailure(webSocket, t, response);
+                    return;
+                }
+                evicted = closed;
+                closed = true;
+            }
+            if (!evicted) {
+                LogUtils.d("warm connection failed {} {}", key.name, t);
+                discard(this, true);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.xap.voicetranslate.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 合成音频直接写为 WAV 文件：先写占位文件头，数据经缓冲区批量写入，结束时回写 RIFF 和 data 长度。
+ * 取代原先先写 PCM、再整体读出转换为 WAV 的两遍写盘。
+ */
+class WavFileSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final int sampleRate;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long dataLength;
+    private boolean closed;
+
+    WavFileSink(File file, int sampleRate) throws IOException {
+        this.file = file;
+        this.sampleRate = sampleRate;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.put(AudioUtil.getHeader(0, sampleRate, 1));//占位文件头
+    }
+
+    String getPath() {
+        return file.getPath();
+    }
+
+    long getDataLength() {
+        return dataLength;
+    }
+
+    void write(byte[] data, int offset, int length) throws IOException {
+        if (length >= buffer.capacity()) {//大块数据直接写入
+            flushBuffer();
+            writeFully(ByteBuffer.wrap(data, offset, length));
+        } else {
+            if (length > buffer.remaining()) {
+                flushBuffer();
+            }
+            buffer.put(data, offset, length);
+        }
+        dataLength += length;
+    }
+
+    /**
+     * 写入剩余数据并回写文件头长度，关闭文件。
+     *
+     * @return WAV 文件路径
+     */
+    String finish() throws IOException {
+        closed = true;
+        try {
+            flushBuffer();
+            ByteBuffer header = ByteBuffer.wrap(AudioUtil.getHeader(dataLength, sampleRate, 1));
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } finally {
+            channel.close();
+        }
+        return file.getPath();
+    }
+
+    /**
+     * 放弃写入，关闭并删除文件；已 finish 的文件不受影响。
+     */
+    void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LogUtils.w("close wav failed", e);
+        }
+        file.delete();
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+}